@@ -20,8 +20,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.oxm.Unmarshaller;
 import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.validation.beanvalidation.MethodValidationPostProcessor;
 
@@ -54,4 +57,88 @@ class ModuleConfiguration {
         um.setContextPath("org.openwms.core.configuration.file");
         return um;
     }
+
+    /**
+     * Loading the initial preferences is a one-shot task, hence a new daemon thread is spawned per task instead of keeping a pool alive.
+     *
+     * @return The executor used to load preferences in background
+     */
+    public
+    @Bean
+    TaskExecutor preferencesLoaderExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("preferences-loader-");
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    /**
+     * Prewarming runs on each login, hence a small bounded pool is used. Prewarming is best effort, tasks beyond the queue capacity are
+     * rejected and the preferences are read on demand instead.
+     *
+     * @return The executor used to prewarm preferences of users
+     */
+    public
+    @Bean
+    ThreadPoolTaskExecutor preferencesPrewarmExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("preferences-prewarm-");
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(100);
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    /**
+     * ConfigurationChangedEvents are dispatched by a single thread, so that events of the same preference are never delivered out of order.
+     * Define a bean with the same name to use another executor.
+     *
+     * @return The executor used to dispatch ConfigurationChangedEvents
+     */
+    public
+    @Bean
+    ThreadPoolTaskExecutor preferencesEventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("preferences-events-");
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    /**
+     * Reads across all shards are executed in parallel, threads are only kept while sharding is in use.
+     *
+     * @return The executor used to query the shards of preferences
+     */
+    public
+    @Bean
+    ThreadPoolTaskExecutor preferencesShardExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("preferences-shards-");
+        executor.setCorePoolSize(Math.max(1, props.getShards().size()));
+        executor.setMaxPoolSize(Math.max(1, props.getShards().size()));
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    /**
+     * Reads of the reactive repository are executed on a small bounded pool, so that request threads and subscribers never wait for the
+     * database.
+     *
+     * @return The executor used to query preferences for reactive subscribers
+     */
+    public
+    @Bean
+    ThreadPoolTaskExecutor preferencesReactiveExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("preferences-reactive-");
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(500);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setDaemon(true);
+        return executor;
+    }
 }
@@ -15,6 +15,9 @@
  */
 package org.openwms.core.app;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -32,6 +35,135 @@ public class ModuleProperties {
      */
     private String initialProperties = "classpath:initial-preferences.xml";
 
+    /**
+     * Whether the initial preferences are loaded on a background thread instead of blocking the application startup.
+     */
+    private boolean asyncLoading = false;
+
+    /**
+     * Time in milliseconds to wait for the initial preferences to be loaded before a caller gives up.
+     */
+    private long loadingTimeout = 30000;
+
+    /**
+     * Maximum number of users whose preferences are kept prewarmed in memory at the same time, the least recently used user is evicted
+     * when the limit is reached.
+     */
+    private int prewarmMaxEntries = 1000;
+
+    /**
+     * Time in milliseconds after that the prewarmed preferences of a user expire if they have not been read.
+     */
+    private long prewarmIdleTimeout = 1800000;
+
+    /**
+     * Time in milliseconds a read waits for a prewarming in progress before it reads from the database.
+     */
+    private long prewarmWaitTimeout = 500;
+
+    /**
+     * Maximum number of scope and owner combinations whose keys are indexed in memory for prefix queries, the least recently queried one is
+     * evicted when the limit is reached, 0 switches the index off.
+     */
+    private int keyIndexMaxPartitions = 10000;
+
+    /**
+     * Time in milliseconds after that the indexed keys of a scope and owner expire if they have not been queried.
+     */
+    private long keyIndexIdleTimeout = 1800000;
+
+    /**
+     * Number of preferences read with one query when preferences are streamed to a client.
+     */
+    private int reactivePageSize = 500;
+
+    /**
+     * Whether changes of USER scoped preference values are buffered in memory and written in batches (write-behind).
+     */
+    private boolean writeBehind = false;
+
+    /**
+     * Time in milliseconds between two flushes of the write-behind buffer.
+     */
+    private long writeBehindInterval = 2000;
+
+    /**
+     * Number of buffered preferences that triggers a flush before the interval has elapsed.
+     */
+    private int writeBehindMaxSize = 500;
+
+    /**
+     * Number of buffered preferences above which changes of further preferences are written immediately by the caller.
+     */
+    private int writeBehindMaxPending = 10000;
+
+    /**
+     * Number of failed attempts to write a buffered change after which the change is dropped.
+     */
+    private int writeBehindMaxAttempts = 3;
+
+    /**
+     * Whether ConfigurationChangedEvents are dispatched asynchronously after commit instead of on the thread of the writer.
+     */
+    private boolean asyncEvents = true;
+
+    /**
+     * Maximum number of preferences with pending ConfigurationChangedEvents, further events are dispatched synchronously.
+     */
+    private int eventQueueCapacity = 1000;
+
+    /**
+     * Only every n-th request to the preferences API is sampled for the latency breakdown, 0 switches sampling off.
+     */
+    private int latencySamplingRate = 100;
+
+    /**
+     * Whether the blocking handlers of the preferences API are executed asynchronously, on virtual threads if the JVM supports them, so
+     * that servlet threads are not blocked while waiting for the database.
+     */
+    private boolean asyncRequests = false;
+
+    /**
+     * Maximum number of asynchronously executed handlers running at the same time, should not exceed the size of the connection pool.
+     */
+    private int asyncRequestsMaxConcurrency = 20;
+
+    /**
+     * Maximum number of asynchronously executed handlers waiting for a thread, only used if the JVM does not support virtual threads.
+     */
+    private int asyncRequestsQueueCapacity = 1000;
+
+    /**
+     * Time in milliseconds an asynchronously executed handler may take including the time waiting to be executed.
+     */
+    private long asyncRequestsTimeout = 30000;
+
+    /**
+     * Maximum number of streamed responses written at the same time, each one occupies a thread while it is written.
+     */
+    private int streamingMaxConcurrency = 8;
+
+    /**
+     * Maximum number of streamed responses waiting for a thread, further requests are rejected.
+     */
+    private int streamingQueueCapacity = 16;
+
+    /**
+     * Time in milliseconds after that a streamed response is aborted.
+     */
+    private long streamingTimeout = 300000;
+
+    /**
+     * Databases that USER and ROLE scoped preferences are distributed to by the hash of their owner. Sharding is off if none is defined,
+     * changing the number of shards requires to migrate the stored preferences.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Database that read-only transactions are routed to, all preferences are read from the primary database if none is defined.
+     */
+    private Replica replica = new Replica();
+
     public String getInitialProperties() {
         return initialProperties;
     }
@@ -39,4 +171,308 @@ public class ModuleProperties {
     public void setInitialProperties(String initialProperties) {
         this.initialProperties = initialProperties;
     }
+
+    public boolean isAsyncLoading() {
+        return asyncLoading;
+    }
+
+    public void setAsyncLoading(boolean asyncLoading) {
+        this.asyncLoading = asyncLoading;
+    }
+
+    public long getLoadingTimeout() {
+        return loadingTimeout;
+    }
+
+    public void setLoadingTimeout(long loadingTimeout) {
+        this.loadingTimeout = loadingTimeout;
+    }
+
+    public int getPrewarmMaxEntries() {
+        return prewarmMaxEntries;
+    }
+
+    public void setPrewarmMaxEntries(int prewarmMaxEntries) {
+        this.prewarmMaxEntries = prewarmMaxEntries;
+    }
+
+    public long getPrewarmIdleTimeout() {
+        return prewarmIdleTimeout;
+    }
+
+    public void setPrewarmIdleTimeout(long prewarmIdleTimeout) {
+        this.prewarmIdleTimeout = prewarmIdleTimeout;
+    }
+
+    public long getPrewarmWaitTimeout() {
+        return prewarmWaitTimeout;
+    }
+
+    public void setPrewarmWaitTimeout(long prewarmWaitTimeout) {
+        this.prewarmWaitTimeout = prewarmWaitTimeout;
+    }
+
+    public int getKeyIndexMaxPartitions() {
+        return keyIndexMaxPartitions;
+    }
+
+    public void setKeyIndexMaxPartitions(int keyIndexMaxPartitions) {
+        this.keyIndexMaxPartitions = keyIndexMaxPartitions;
+    }
+
+    public long getKeyIndexIdleTimeout() {
+        return keyIndexIdleTimeout;
+    }
+
+    public void setKeyIndexIdleTimeout(long keyIndexIdleTimeout) {
+        this.keyIndexIdleTimeout = keyIndexIdleTimeout;
+    }
+
+    public int getReactivePageSize() {
+        return reactivePageSize;
+    }
+
+    public void setReactivePageSize(int reactivePageSize) {
+        this.reactivePageSize = reactivePageSize;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public long getWriteBehindInterval() {
+        return writeBehindInterval;
+    }
+
+    public void setWriteBehindInterval(long writeBehindInterval) {
+        this.writeBehindInterval = writeBehindInterval;
+    }
+
+    public int getWriteBehindMaxSize() {
+        return writeBehindMaxSize;
+    }
+
+    public void setWriteBehindMaxSize(int writeBehindMaxSize) {
+        this.writeBehindMaxSize = writeBehindMaxSize;
+    }
+
+    public int getWriteBehindMaxPending() {
+        return writeBehindMaxPending;
+    }
+
+    public void setWriteBehindMaxPending(int writeBehindMaxPending) {
+        this.writeBehindMaxPending = writeBehindMaxPending;
+    }
+
+    public int getWriteBehindMaxAttempts() {
+        return writeBehindMaxAttempts;
+    }
+
+    public void setWriteBehindMaxAttempts(int writeBehindMaxAttempts) {
+        this.writeBehindMaxAttempts = writeBehindMaxAttempts;
+    }
+
+    public boolean isAsyncEvents() {
+        return asyncEvents;
+    }
+
+    public void setAsyncEvents(boolean asyncEvents) {
+        this.asyncEvents = asyncEvents;
+    }
+
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+
+    public void setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+    }
+
+    public int getLatencySamplingRate() {
+        return latencySamplingRate;
+    }
+
+    public void setLatencySamplingRate(int latencySamplingRate) {
+        this.latencySamplingRate = latencySamplingRate;
+    }
+
+    public boolean isAsyncRequests() {
+        return asyncRequests;
+    }
+
+    public void setAsyncRequests(boolean asyncRequests) {
+        this.asyncRequests = asyncRequests;
+    }
+
+    public int getAsyncRequestsMaxConcurrency() {
+        return asyncRequestsMaxConcurrency;
+    }
+
+    public void setAsyncRequestsMaxConcurrency(int asyncRequestsMaxConcurrency) {
+        this.asyncRequestsMaxConcurrency = asyncRequestsMaxConcurrency;
+    }
+
+    public int getAsyncRequestsQueueCapacity() {
+        return asyncRequestsQueueCapacity;
+    }
+
+    public void setAsyncRequestsQueueCapacity(int asyncRequestsQueueCapacity) {
+        this.asyncRequestsQueueCapacity = asyncRequestsQueueCapacity;
+    }
+
+    public long getAsyncRequestsTimeout() {
+        return asyncRequestsTimeout;
+    }
+
+    public void setAsyncRequestsTimeout(long asyncRequestsTimeout) {
+        this.asyncRequestsTimeout = asyncRequestsTimeout;
+    }
+
+    public int getStreamingMaxConcurrency() {
+        return streamingMaxConcurrency;
+    }
+
+    public void setStreamingMaxConcurrency(int streamingMaxConcurrency) {
+        this.streamingMaxConcurrency = streamingMaxConcurrency;
+    }
+
+    public int getStreamingQueueCapacity() {
+        return streamingQueueCapacity;
+    }
+
+    public void setStreamingQueueCapacity(int streamingQueueCapacity) {
+        this.streamingQueueCapacity = streamingQueueCapacity;
+    }
+
+    public long getStreamingTimeout() {
+        return streamingTimeout;
+    }
+
+    public void setStreamingTimeout(long streamingTimeout) {
+        this.streamingTimeout = streamingTimeout;
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public Replica getReplica() {
+        return replica;
+    }
+
+    public void setReplica(Replica replica) {
+        this.replica = replica;
+    }
+
+    /**
+     * Connection settings of one shard.
+     */
+    public static class Shard {
+
+        /**
+         * JDBC URL of the shard database.
+         */
+        private String url;
+
+        /**
+         * Login user of the shard database.
+         */
+        private String username;
+
+        /**
+         * Login password of the shard database.
+         */
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    /**
+     * Connection settings of the read replica.
+     */
+    public static class Replica {
+
+        /**
+         * JDBC URL of the replica database.
+         */
+        private String url;
+
+        /**
+         * Login user of the replica database.
+         */
+        private String username;
+
+        /**
+         * Login password of the replica database.
+         */
+        private String password;
+
+        /**
+         * Time in milliseconds after a write in that reads of the same HTTP session are served by the primary database, should exceed the
+         * replication lag.
+         */
+        private long readYourWritesWindow = 5000;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public long getReadYourWritesWindow() {
+            return readYourWritesWindow;
+        }
+
+        public void setReadYourWritesWindow(long readYourWritesWindow) {
+            this.readYourWritesWindow = readYourWritesWindow;
+        }
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.app;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * A ReadYourWritesGuard remembers in the HTTP session when a transaction that used the primary database has been committed. Within the
+ * configured window afterwards, read-only transactions of the same session are still served by the primary database, so that the client
+ * does not miss its own changes while the replica is lagging behind. Work that is not bound to an HTTP request is not guarded.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see ReplicaRoutingDataSource
+ * @since 2.0
+ */
+class ReadYourWritesGuard {
+
+    /** Name of the session attribute holding the time until reads go to the primary database. */
+    static final String ATTRIBUTE = ReadYourWritesGuard.class.getName() + ".until";
+    private final long window;
+
+    ReadYourWritesGuard(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Check whether the current session has written within the window.
+     *
+     * @return {@literal true} if so
+     */
+    boolean isReadingOwnWrites() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        Object until = attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_SESSION);
+        return until instanceof Long && (Long) until > System.currentTimeMillis();
+    }
+
+    /**
+     * Remember the write of the current session after the current transaction has been committed, once per transaction.
+     */
+    void onWrite() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(this)
+                || RequestContextHolder.getRequestAttributes() == null) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+                if (attributes != null) {
+                    attributes.setAttribute(ATTRIBUTE, System.currentTimeMillis() + window, RequestAttributes.SCOPE_SESSION);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReadYourWritesGuard.this);
+            }
+        });
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.app;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * A ReplicaConfiguration replaces the auto-configured datasource with one that routes read-only transactions to the replica database
+ * configured as <i>openwms.core.config.replica.url</i>. The primary database is still configured with the common {@code spring.datasource}
+ * properties.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see ReplicaRoutingDataSource
+ * @since 2.0
+ */
+@Configuration
+@ConditionalOnProperty("openwms.core.config.replica.url")
+class ReplicaConfiguration {
+
+    @Autowired
+    private ModuleProperties props;
+
+    public
+    @Bean
+    @Primary
+    DataSource dataSource(DataSourceProperties dataSourceProperties) {
+        ModuleProperties.Replica replica = props.getReplica();
+        DataSource primary = dataSourceProperties.initializeDataSourceBuilder().build();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReplicaRoutingDataSource.Target.PRIMARY, primary);
+        targets.put(ReplicaRoutingDataSource.Target.REPLICA, DataSourceBuilder.create()
+                .url(replica.getUrl())
+                .username(replica.getUsername())
+                .password(replica.getPassword())
+                .build());
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(new ReadYourWritesGuard(replica.getReadYourWritesWindow()));
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.app;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A ReplicaRoutingDataSource routes connections of read-only transactions to the replica database and all others to the primary one. It
+ * must be wrapped into a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, because the transaction manager
+ * fetches the connection before the read-only flag of the transaction is exposed.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see ReadYourWritesGuard
+ * @since 2.0
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Lookup keys of the target datasources.
+     */
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReadYourWritesGuard guard;
+
+    ReplicaRoutingDataSource(ReadYourWritesGuard guard) {
+        this.guard = guard;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Read-only transactions of a session that has recently written are routed to the primary database as well.
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return guard.isReadingOwnWrites() ? Target.PRIMARY : Target.REPLICA;
+        }
+        guard.onWrite();
+        return Target.PRIMARY;
+    }
+}
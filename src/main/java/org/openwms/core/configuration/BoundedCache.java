@@ -0,0 +1,218 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A BoundedCache is a map of at most {@code maxEntries} entries. When the limit is reached, the least recently used entry is evicted to
+ * make room for a new one. Entries that have not been read or written for longer than the {@code idleTimeout} expire, so that memory is
+ * given back even without new entries. All operations run in constant time except for the removal of expired entries and {@link
+ * #removeIf(Predicate)}.
+ *
+ * @param <K> The type of keys
+ * @param <V> The type of values
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+final class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Node<V>> entries;
+    private long evictions;
+
+    /**
+     * Create with the system clock.
+     *
+     * @param maxEntries Maximum number of entries, 0 means nothing is cached
+     * @param idleTimeout Time in milliseconds after that an unused entry expires, 0 means entries do not expire
+     */
+    BoundedCache(int maxEntries, long idleTimeout) {
+        this(maxEntries, idleTimeout, System::nanoTime);
+    }
+
+    /**
+     * Create with a custom clock.
+     *
+     * @param maxEntries Maximum number of entries, 0 means nothing is cached
+     * @param idleTimeout Time in milliseconds after that an unused entry expires, 0 means entries do not expire
+     * @param clock Returns the current time in nanoseconds
+     */
+    BoundedCache(int maxEntries, long idleTimeout, LongSupplier clock) {
+        this.maxEntries = Math.max(maxEntries, 0);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<K, Node<V>>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Node<V>> eldest) {
+                if (size() > BoundedCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the value of the {@code key} and mark it as used.
+     *
+     * @param key The key
+     * @return The value or {@literal null} if there is none or it has expired
+     */
+    synchronized V get(K key) {
+        Node<V> node = entries.get(key);
+        if (node == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        if (isExpired(node, now)) {
+            entries.remove(key);
+            evictions++;
+            return null;
+        }
+        node.lastAccess = now;
+        return node.value;
+    }
+
+    /**
+     * Return the value of the {@code key} without marking it as used.
+     *
+     * @param key The key
+     * @return The value or {@literal null} if there is none or it has expired
+     */
+    synchronized V peek(K key) {
+        Node<V> node = entries.get(key);
+        return node == null || isExpired(node, clock.getAsLong()) ? null : node.value;
+    }
+
+    /**
+     * Store the {@code value} unless there is already a value for the {@code key}.
+     *
+     * @param key The key
+     * @param value The value
+     * @return The existing value or {@literal null} if the {@code value} has been stored
+     */
+    synchronized V putIfAbsent(K key, V value) {
+        V existing = get(key);
+        if (existing == null) {
+            put(key, value);
+        }
+        return existing;
+    }
+
+    /**
+     * Store the {@code value} and replace an existing one. Expired and, if the cache is full, least recently used entries are evicted.
+     *
+     * @param key The key
+     * @param value The value
+     */
+    synchronized void put(K key, V value) {
+        long now = clock.getAsLong();
+        removeExpired(now);
+        entries.put(key, new Node<>(value, now));
+    }
+
+    /**
+     * Remove the value of the {@code key}.
+     *
+     * @param key The key
+     */
+    synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove the value of the {@code key} only if it is still the given {@code value}.
+     *
+     * @param key The key
+     * @param value The expected value
+     */
+    synchronized void remove(K key, V value) {
+        Node<V> node = entries.get(key);
+        if (node != null && node.value == value) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Remove all values that match the {@code filter}.
+     *
+     * @param filter Selects the values to remove
+     */
+    synchronized void removeIf(Predicate<? super V> filter) {
+        entries.values().removeIf(node -> filter.test(node.value));
+    }
+
+    /**
+     * Return the current number of entries, including expired entries that have not been removed yet.
+     *
+     * @return The number of entries
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Return the number of entries evicted because the cache was full or they expired.
+     *
+     * @return The number of evictions
+     */
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private void removeExpired(long now) {
+        if (idleTimeoutNanos <= 0) {
+            return;
+        }
+        // Nodes are in access order, the first one that is still in use ends the scan
+        Iterator<Node<V>> it = entries.values().iterator();
+        while (it.hasNext() && isExpired(it.next(), now)) {
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private boolean isExpired(Node<V> node, long now) {
+        return idleTimeoutNanos > 0 && now - node.lastAccess > idleTimeoutNanos;
+    }
+
+    private static final class Node<V> {
+
+        private final V value;
+        private long lastAccess;
+
+        private Node(V value, long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.openwms.core.configuration.file.PreferenceKey;
+import org.openwms.core.event.ConfigurationChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A ConfigurationEventDispatcher publishes {@link ConfigurationChangedEvent}s after the surrounding transaction has been committed. Events
+ * are dispatched asynchronously, so that the cost of listeners does not add to the latency of the writer. Events of the same preference
+ * that are still pending are coalesced, only the latest one is delivered. The source of each event is an immutable {@link PreferenceVO} of
+ * the changed preference, regardless of how it has been changed, never the entity itself.
+ * <p>
+ * At most <i>openwms.core.config.event-queue-capacity</i> preferences can have a pending event, further events are dispatched
+ * synchronously by the writer. Asynchronous dispatching can be switched off with <i>openwms.core.config.async-events</i>. Queue depth,
+ * counts and listener time are published as Micrometer meters, prefixed with {@code preferences.events.}.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+class ConfigurationEventDispatcher implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationEventDispatcher.class);
+    @Autowired
+    private ApplicationEventPublisher publisher;
+    @Autowired
+    @Qualifier("preferencesEventExecutor")
+    private TaskExecutor executor;
+    @Value("${openwms.core.config.async-events:true}")
+    private boolean async;
+    @Value("${openwms.core.config.event-queue-capacity:1000}")
+    private int capacity;
+    private BlockingQueue<PreferenceKey> queue;
+    private final ConcurrentMap<PreferenceKey, PreferenceVO> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong listenerNanos = new AtomicLong();
+    private final AtomicLong maxListenerNanos = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Dispatch a {@link ConfigurationChangedEvent} for the changed preference after the current transaction has been committed, or at once
+     * if no transaction is active. Nothing is dispatched when the transaction is rolled back.
+     *
+     * @param source The changed preference
+     */
+    void fireAfterCommit(PreferenceVO source) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    dispatch(source);
+                }
+            });
+        } else {
+            dispatch(source);
+        }
+    }
+
+    /**
+     * Dispatch a {@link ConfigurationChangedEvent} for the changed preference. Publishing into the pending events and enqueueing the key is
+     * one atomic step per key, so a key is pending exactly as long as it is queued and a rejected event never stays pending.
+     *
+     * @param source The changed preference
+     */
+    void dispatch(PreferenceVO source) {
+        if (!async) {
+            publish(source);
+            return;
+        }
+        PreferenceKey key = new PreferenceKey(source.getType(), source.getOwner(), source.getKey());
+        Enqueued[] enqueued = new Enqueued[1];
+        pending.compute(key, (k, current) -> {
+            if (current != null) {
+                enqueued[0] = Enqueued.COALESCED;
+                return source;
+            }
+            if (queue.offer(k)) {
+                enqueued[0] = Enqueued.QUEUED;
+                return source;
+            }
+            enqueued[0] = Enqueued.REJECTED;
+            return null;
+        });
+        switch (enqueued[0]) {
+            case COALESCED:
+                coalesced.incrementAndGet();
+                break;
+            case REJECTED:
+                rejected.incrementAndGet();
+                publish(source);
+                break;
+            default:
+                scheduleDrain();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (TaskRejectedException tre) {
+                draining.set(false);
+                LOGGER.warn("Dispatching of ConfigurationChangedEvents rejected, dispatching on next change: {}", tre.getMessage());
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            PreferenceKey key;
+            while ((key = queue.poll()) != null) {
+                PreferenceVO source = pending.remove(key);
+                if (source != null) {
+                    publish(source);
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        if (!queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private void publish(PreferenceVO source) {
+        long start = System.nanoTime();
+        try {
+            publisher.publishEvent(new ConfigurationChangedEvent(source));
+        } catch (RuntimeException ex) {
+            LOGGER.error("Listener of ConfigurationChangedEvent failed: {}", ex.getMessage(), ex);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            dispatched.incrementAndGet();
+            listenerNanos.addAndGet(elapsed);
+            maxListenerNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Current queue depth, the number of dispatched, coalesced and rejected events and the time spent in listeners.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("preferences.events.queue-depth", this, d -> d.queue.size())
+                .description("Preferences with a pending event")
+                .register(registry);
+        FunctionCounter.builder("preferences.events.coalesced", coalesced, AtomicLong::get)
+                .description("Events replaced by a later change of the same preference")
+                .register(registry);
+        FunctionCounter.builder("preferences.events.rejected", rejected, AtomicLong::get)
+                .description("Events dispatched synchronously because the queue was full")
+                .register(registry);
+        FunctionTimer.builder("preferences.events.listener-time", this, d -> d.dispatched.get(), d -> d.listenerNanos.get(),
+                TimeUnit.NANOSECONDS)
+                .description("Dispatched events and the time spent in their listeners")
+                .register(registry);
+        Gauge.builder("preferences.events.listener-time.max", maxListenerNanos, n -> n.get() / 1_000_000D)
+                .description("Longest time spent in the listeners of a single event in milliseconds")
+                .register(registry);
+    }
+
+    private enum Enqueued {
+        QUEUED, COALESCED, REJECTED
+    }
+}
@@ -23,8 +23,12 @@ package org.openwms.core.configuration;
 
 import javax.validation.constraints.NotNull;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.openwms.core.configuration.file.AbstractPreference;
+import reactor.core.publisher.Flux;
 
 /**
  * A ConfigurationService is responsible to deal with preferences. Whereby preferences have particular defined scopes, e.g. some preferences
@@ -56,6 +60,73 @@ public interface ConfigurationService {
      */
     <T extends AbstractPreference> Collection<T> findByType(Class<T> clazz, String owner);
 
+    /**
+     * Find and return all preferences of a specific type of Preference that belong to one of the {@code owners}, grouped by owner.
+     *
+     * @param <T> Any subtype of {@link AbstractPreference} that has an owner
+     * @param clazz The class of preference to search for
+     * @param owners The owners to search for
+     * @return A Map with an entry for each of the {@code owners}, with a list of its preferences as value
+     */
+    <T extends AbstractPreference> Map<String, List<T>> findByType(@NotNull Class<T> clazz, @NotNull Collection<String> owners);
+
+    /**
+     * Find and return read-only views of all preferences from the denormalized read model. The order of elements is not guaranteed and is
+     * specific to the implementation.
+     *
+     * @return A Collection of all preferences
+     */
+    Collection<PreferenceVO> list();
+
+    /**
+     * Stream read-only views of all preferences from the denormalized read model without blocking the calling thread.
+     *
+     * @return A Flux of all preferences
+     */
+    Flux<PreferenceVO> listReactive();
+
+    /**
+     * Stream read-only views of all preferences of a {@link PropertyScope} and of an owner from the denormalized read model without
+     * blocking the calling thread.
+     *
+     * @param scope The scope of preferences to search for
+     * @param owner The owner of the preferences, {@literal null} for all owners
+     * @return A Flux of the preferences
+     */
+    Flux<PreferenceVO> listReactive(@NotNull PropertyScope scope, String owner);
+
+    /**
+     * Find and return read-only views of all preferences of a {@link PropertyScope} and of an owner from the denormalized read model.
+     *
+     * @param scope The scope of preferences to search for
+     * @param owner The owner of the preferences
+     * @return A Collection of preferences
+     */
+    Collection<PreferenceVO> list(@NotNull PropertyScope scope, String owner);
+
+    /**
+     * Find and return read-only views of all preferences that match all given filters from the denormalized read model. Only the selected
+     * {@code fields} are read and set.
+     *
+     * @param scope The scope, {@literal null} for all scopes
+     * @param owner The owner, {@literal null} for all owners
+     * @param keyPrefix The beginning of the key, {@literal null} for all keys
+     * @param fields The fields to read, all fields if empty
+     * @return A Collection of preferences, never {@literal null}
+     */
+    Collection<PreferenceVO> list(PropertyScope scope, String owner, String keyPrefix, @NotNull Set<PreferenceField> fields);
+
+    /**
+     * Find and return read-only views of all preferences of a {@link PropertyScope} and of an owner whose key starts with the {@code
+     * keyPrefix}, i.e. all preferences of a namespace like {@code ui.grid.orders.}.
+     *
+     * @param scope The scope of preferences to search for
+     * @param owner The owner of the preferences, {@literal null} for all owners
+     * @param keyPrefix The beginning of the key
+     * @return A Collection of preferences ordered by key, never {@literal null}
+     */
+    Collection<PreferenceVO> listByKeyPrefix(@NotNull PropertyScope scope, String owner, @NotNull String keyPrefix);
+
     /**
      * Save the given {@link AbstractPreference} or persist it when it is a transient instance.
      *
@@ -71,4 +142,86 @@ public interface ConfigurationService {
      * @param preference The {@link AbstractPreference} to delete
      */
     void delete(@NotNull AbstractPreference preference);
+
+    /**
+     * Start loading the USER and ROLE scoped preferences of a user in background, so that subsequent reads of this user are served from
+     * memory. Meant to be called when the user logs in.
+     *
+     * @param username The name of the user
+     * @param roles The names of all roles the user is assigned to
+     */
+    void prewarm(@NotNull String username, Collection<String> roles);
+
+    /**
+     * Release the prewarmed preferences of a user, e.g. when the user logs out.
+     *
+     * @param username The name of the user
+     */
+    void release(@NotNull String username);
+
+    /**
+     * Find and return read-only views of all USER scoped preferences of the user and all ROLE scoped preferences of the user's roles. For
+     * prewarmed users this is served from memory.
+     *
+     * @param username The name of the user
+     * @param roles The names of all roles the user is assigned to, only used if the user is not prewarmed
+     * @return A Collection of preferences
+     */
+    Collection<PreferenceVO> listForUser(@NotNull String username, Collection<String> roles);
+
+    /**
+     * Update the value, float value and description of an existing preference, but only if it has not been modified since the caller read
+     * it (compare-and-set). The preference is identified by type, owner and key of the {@code preference}, the {@code version} of the
+     * {@code preference} is the version the caller expects to be current.
+     *
+     * @param preference The preference with the new values and the expected version
+     * @return The updated preference with its new version
+     * @throws org.ameba.exception.NotFoundException when the preference does not exist
+     * @throws org.springframework.dao.OptimisticLockingFailureException when the preference has been modified in the meantime
+     */
+    PreferenceVO compareAndSet(@NotNull PreferenceVO preference);
+
+    /**
+     * Set the String value of an existing preference without loading it first.
+     *
+     * @param scope The scope of the preference
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key of the preference
+     * @param value The new value
+     * @return The updated preference with its new version
+     * @throws org.ameba.exception.NotFoundException when the preference does not exist
+     */
+    PreferenceVO updateValue(@NotNull PropertyScope scope, String owner, @NotNull String key, String value);
+
+    /**
+     * Set the float value of an existing preference without loading it first.
+     *
+     * @param scope The scope of the preference
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key of the preference
+     * @param floatValue The new value
+     * @return The updated preference with its new version
+     * @throws org.ameba.exception.NotFoundException when the preference does not exist
+     */
+    PreferenceVO updateFloatValue(@NotNull PropertyScope scope, String owner, @NotNull String key, Float floatValue);
+
+    /**
+     * Set the String value of an existing USER scoped preference. If write-behind is enabled the change is buffered and written later,
+     * coalesced with following changes of the same preference. Otherwise it is written immediately.
+     *
+     * @param owner The owner
+     * @param key The key of the preference
+     * @param value The new value
+     */
+    void writeUserValue(@NotNull String owner, @NotNull String key, String value);
+
+    /**
+     * Set the float value of an existing USER scoped preference. If write-behind is enabled the change is buffered and written later,
+     * coalesced with following changes of the same preference. Otherwise it is written immediately.
+     *
+     * @param owner The owner
+     * @param key The key of the preference
+     * @param floatValue The new value
+     */
+    void writeUserFloatValue(@NotNull String owner, @NotNull String key, Float floatValue);
 }
@@ -21,20 +21,31 @@
  */
 package org.openwms.core.configuration;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.ameba.annotation.TxService;
-import org.openwms.core.annotation.FireAfterTransaction;
+import org.ameba.exception.NotFoundException;
+import org.openwms.core.configuration.PreferenceMetrics.ServiceOperation;
 import org.openwms.core.configuration.file.AbstractPreference;
 import org.openwms.core.configuration.file.PreferenceDao;
-import org.openwms.core.event.ConfigurationChangedEvent;
+import org.openwms.core.configuration.file.Preferences;
 import org.openwms.core.event.MergePropertiesEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Flux;
 
 /**
  * A ConfigurationServiceImpl is a transactional Spring powered service implementation to manage preferences.
@@ -51,6 +62,24 @@ class ConfigurationServiceImpl implements ConfigurationService, ApplicationListe
     private PreferenceDao fileDao;
     @Autowired
     private PreferenceRepository preferenceRepository;
+    @Autowired
+    private FlatPreferenceRepository flatPreferenceRepository;
+    @Autowired
+    private PreferenceReadModel readModel;
+    @Autowired
+    private UserPreferenceCache userPreferenceCache;
+    @Autowired
+    private PreferenceKeyIndex keyIndex;
+    @Autowired
+    private ReactivePreferenceRepository reactiveRepository;
+    @Autowired
+    private UserPreferenceWriteBehind writeBehind;
+    @Autowired
+    private ConfigurationEventDispatcher eventDispatcher;
+    @Autowired
+    private PreferenceChangeLog changeLog;
+    @Autowired
+    private PreferenceMetrics metrics;
 
     /**
      * {@inheritDoc}
@@ -60,7 +89,7 @@ class ConfigurationServiceImpl implements ConfigurationService, ApplicationListe
      */
     @Override
     public void onApplicationEvent(MergePropertiesEvent event) {
-        mergeApplicationProperties();
+        metrics.service(ServiceOperation.MERGE, null).record(this::mergeApplicationProperties);
     }
 
     /**
@@ -69,8 +98,10 @@ class ConfigurationServiceImpl implements ConfigurationService, ApplicationListe
      * No match returns an empty List ({@link Collections#emptyList()}).
      */
     @Override
+    @Transactional(readOnly = true)
     public Collection<AbstractPreference> findAll() {
-        Collection<AbstractPreference> result = preferenceRepository.findAll();
+        Collection<AbstractPreference> result = metrics.service(ServiceOperation.FIND_ALL, null)
+                .record(preferenceRepository::findAllPreferences);
         return result == null ? Collections.emptyList() : result;
     }
 
@@ -81,24 +112,289 @@ class ConfigurationServiceImpl implements ConfigurationService, ApplicationListe
      * Collections#emptyList()}).
      */
     @Override
+    @Transactional(readOnly = true)
     public <T extends AbstractPreference> Collection<T> findByType(Class<T> clazz, String owner) {
-        Collection<T> result;
-        result = (owner == null || owner.isEmpty()) ? preferenceRepository.findByType(clazz) : preferenceRepository.findByType(clazz, owner);
+        Collection<T> result = metrics.service(ServiceOperation.FIND_BY_TYPE, Preferences.scopeOf(clazz)).record(() ->
+                (owner == null || owner.isEmpty()) ? preferenceRepository.findByType(clazz) :
+                        preferenceRepository.findByType(clazz, owner));
         return result == null ? Collections.<T>emptyList() : result;
     }
 
     /**
      * {@inheritDoc}
      * <p>
-     * Not allowed to call this implementation with a {@literal null} argument.
+     * All preferences are fetched with as few queries as possible and grouped afterwards. Owners without preferences are mapped to an
+     * empty List.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public <T extends AbstractPreference> Map<String, List<T>> findByType(Class<T> clazz, Collection<String> owners) {
+        return metrics.service(ServiceOperation.FIND_BY_TYPE, Preferences.scopeOf(clazz)).record(() -> groupByOwner(clazz, owners));
+    }
+
+    private <T extends AbstractPreference> Map<String, List<T>> groupByOwner(Class<T> clazz, Collection<String> owners) {
+        Map<String, List<T>> result = new LinkedHashMap<>(owners.size() * 4 / 3 + 1);
+        for (String owner : owners) {
+            result.put(owner, new ArrayList<>());
+        }
+        if (owners.isEmpty()) {
+            return result;
+        }
+        for (T preference : preferenceRepository.findByType(clazz, owners)) {
+            result.get(preference.getOwner()).add(preference);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runs in a read-only transaction without flushing. No match returns an empty List ({@link Collections#emptyList()}).
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<PreferenceVO> list() {
+        Collection<PreferenceVO> result = flatPreferenceRepository.findAllVOs();
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Does not take part in a transaction of the caller, the query runs in its own transaction on another thread.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Flux<PreferenceVO> listReactive() {
+        return reactiveRepository.findAll().map(writeBehind::overlay);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Does not take part in a transaction of the caller, the query runs in its own transaction on another thread.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Flux<PreferenceVO> listReactive(PropertyScope scope, String owner) {
+        return reactiveRepository.findByTypeAndOwner(scope, owner == null || owner.isEmpty() ? null : owner).map(writeBehind::overlay);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runs in a read-only transaction without flushing. If owner is set to {@literal null} or is empty, all preferences of this scope are
+     * returned. USER scoped preferences of prewarmed users are served from memory without a transaction. No match returns an empty List
+     * ({@link Collections#emptyList()}).
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Collection<PreferenceVO> list(PropertyScope scope, String owner) {
+        if (scope == PropertyScope.USER && owner != null && !owner.isEmpty()) {
+            List<PreferenceVO> prewarmed = userPreferenceCache.getUserPreferences(owner);
+            if (prewarmed != null) {
+                return writeBehind.overlay(prewarmed);
+            }
+        }
+        Collection<PreferenceVO> result = (owner == null || owner.isEmpty()) ? flatPreferenceRepository.findVOsByType(scope) :
+                flatPreferenceRepository.findVOsByTypeAndOwner(scope, owner);
+        return result == null ? Collections.emptyList() : writeBehind.overlay(result);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The filters and the projection are part of the query. If changes are buffered for write-behind, the identifying fields are read in
+     * addition to overlay the buffered values.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Collection<PreferenceVO> list(PropertyScope scope, String owner, String keyPrefix, Set<PreferenceField> fields) {
+        Set<PreferenceField> queried = fields.isEmpty() ? EnumSet.allOf(PreferenceField.class) : EnumSet.copyOf(fields);
+        if (writeBehind.hasPending()) {
+            queried.addAll(PreferenceField.IDENTITY);
+        }
+        return writeBehind.overlay(flatPreferenceRepository.findVOs(scope, owner, keyPrefix, queried));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Served from the in-memory key index when an owner is given or in application scope. Otherwise, or if the index is full, the prefix
+     * is queried with a LIKE that uses the index on scope, owner and key of the read model.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Collection<PreferenceVO> listByKeyPrefix(PropertyScope scope, String owner, String keyPrefix) {
+        String ownerOrNull = owner == null || owner.isEmpty() ? null : owner;
+        List<PreferenceVO> result = ownerOrNull == null && scope != PropertyScope.APPLICATION ? null :
+                keyIndex.findByKeyPrefix(scope, ownerOrNull, keyPrefix);
+        if (result == null) {
+            result = new ArrayList<>(flatPreferenceRepository.findVOs(scope, ownerOrNull, keyPrefix, EnumSet.allOf(PreferenceField.class)));
+            result.sort(Comparator.comparing(PreferenceVO::getKey));
+        }
+        return writeBehind.overlay(result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void prewarm(String username, Collection<String> roles) {
+        userPreferenceCache.prewarm(username, roles);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void release(String username) {
+        userPreferenceCache.evict(username);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A prewarmed user is served from memory without a transaction, otherwise the preferences are read from the denormalized read model.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Collection<PreferenceVO> listForUser(String username, Collection<String> roles) {
+        List<PreferenceVO> prewarmed = userPreferenceCache.getAllPreferences(username);
+        if (prewarmed != null) {
+            return writeBehind.overlay(prewarmed);
+        }
+        List<PreferenceVO> result = new ArrayList<>(flatPreferenceRepository.findVOsByTypeAndOwner(PropertyScope.USER, username));
+        if (roles != null && !roles.isEmpty()) {
+            result.addAll(flatPreferenceRepository.findVOsByTypeAndOwners(PropertyScope.ROLE, roles));
+        }
+        return writeBehind.overlay(result);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Not allowed to call this implementation with a {@literal null} argument. The change is flushed immediately, so that the read model
+     * gets the incremented version and a stale version is detected before anything else happens in the transaction.
      *
      * @throws IllegalArgumentException when {@code preference} is {@literal null}
      */
     @Override
-    @FireAfterTransaction(events = {ConfigurationChangedEvent.class})
     public <T extends AbstractPreference> T save(T preference) {
         Assert.notNull(preference, "Not allowed to call save with a NULL argument");
-        return preferenceRepository.save(preference);
+        return metrics.service(ServiceOperation.SAVE, preference.getType()).record(() -> doSave(preference));
+    }
+
+    private <T extends AbstractPreference> T doSave(T preference) {
+        T saved = preferenceRepository.store(preference);
+        readModel.save(saved);
+        changeLog.record(saved);
+        PreferenceVO result = PreferenceVO.of(saved);
+        userPreferenceCache.update(result);
+        eventDispatcher.fireAfterCommit(result);
+        return saved;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The version is checked against the loaded preference first and again by the persistence provider when the change is flushed, so a
+     * concurrent update between both is detected as well. No pessimistic lock is acquired. A buffered write-behind change of the preference
+     * is written before, so that it can not overwrite this update later on.
+     */
+    @Override
+    public PreferenceVO compareAndSet(PreferenceVO preference) {
+        flushPendingWrite(preference.getType(), preference.getOwner(), preference.getKey());
+        Class<? extends AbstractPreference> type = Preferences.typeOf(preference.getType());
+        AbstractPreference current = preferenceRepository.findByKey(type, preference.getOwner(), preference.getKey())
+                .orElseThrow(() -> new NotFoundException(String.format("Preference with type [%s], owner [%s] and key [%s] not found",
+                        preference.getType(), preference.getOwner(), preference.getKey())));
+        if (current.getVersion() != preference.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(type, current.getId());
+        }
+        current.setValue(preference.getValue());
+        current.setFloatValue(preference.getFloatValue());
+        current.setDescription(preference.getDescription());
+        AbstractPreference saved = preferenceRepository.store(current);
+        readModel.save(saved);
+        changeLog.record(saved);
+        PreferenceVO result = PreferenceVO.of(saved);
+        userPreferenceCache.update(result);
+        eventDispatcher.fireAfterCommit(result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Executed as one bulk UPDATE on the preference and one on the read model, the returned preference is read from the read model.
+     */
+    @Override
+    public PreferenceVO updateValue(PropertyScope scope, String owner, String key, String value) {
+        updateByKey(scope, owner, key, "value", value);
+        readModel.updateValue(scope, owner, key, value);
+        return afterUpdate(scope, owner, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Executed as one bulk UPDATE on the preference and one on the read model, the returned preference is read from the read model.
+     */
+    @Override
+    public PreferenceVO updateFloatValue(PropertyScope scope, String owner, String key, Float floatValue) {
+        updateByKey(scope, owner, key, "floatValue", floatValue);
+        readModel.updateFloatValue(scope, owner, key, floatValue);
+        return afterUpdate(scope, owner, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Does not take part in a transaction of the caller, buffered changes are written in their own transaction.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeUserValue(String owner, String key, String value) {
+        writeBehind.writeValue(owner, key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Does not take part in a transaction of the caller, buffered changes are written in their own transaction.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeUserFloatValue(String owner, String key, Float floatValue) {
+        writeBehind.writeFloatValue(owner, key, floatValue);
+    }
+
+    private void flushPendingWrite(PropertyScope scope, String owner, String key) {
+        if (scope == PropertyScope.USER) {
+            writeBehind.flush(owner, key);
+        }
+    }
+
+    private void updateByKey(PropertyScope scope, String owner, String key, String attribute, Object value) {
+        flushPendingWrite(scope, owner, key);
+        if (preferenceRepository.updateByKey(Preferences.typeOf(scope), owner, key, attribute, value) == 0) {
+            throw new NotFoundException(String.format("Preference with type [%s], owner [%s] and key [%s] not found", scope, owner, key));
+        }
+        changeLog.record(scope, owner, key, null);
+    }
+
+    private PreferenceVO afterUpdate(PropertyScope scope, String owner, String key) {
+        PreferenceVO result = flatPreferenceRepository.findVOByKey(scope, owner, key);
+        if (result == null) {
+            userPreferenceCache.invalidate(scope, owner);
+        } else {
+            userPreferenceCache.update(result);
+            eventDispatcher.fireAfterCommit(result);
+        }
+        return result;
     }
 
     /**
@@ -109,15 +405,22 @@ class ConfigurationServiceImpl implements ConfigurationService, ApplicationListe
     @Override
     public void delete(AbstractPreference preference) {
         Assert.notNull(preference, "Not allowed to call remove with a NULL argument");
-        preferenceRepository.delete(preference);
+        metrics.service(ServiceOperation.DELETE, preference.getType()).record(() -> {
+            preferenceRepository.remove(preference);
+            readModel.delete(preference);
+            changeLog.record(preference);
+        });
+        userPreferenceCache.invalidate(preference);
     }
 
     private void mergeApplicationProperties() {
         List<AbstractPreference> fromFile = fileDao.findAll();
-        List<AbstractPreference> persistedPrefs = preferenceRepository.findAll();
+        List<AbstractPreference> persistedPrefs = preferenceRepository.findAllPreferences();
         for (AbstractPreference pref : fromFile) {
             if (!persistedPrefs.contains(pref)) {
-                preferenceRepository.save(pref);
+                AbstractPreference saved = preferenceRepository.store(pref);
+                readModel.save(saved);
+                changeLog.record(saved);
             }
         }
     }
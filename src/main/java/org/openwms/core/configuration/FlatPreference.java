@@ -0,0 +1,168 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+import org.openwms.core.configuration.file.AbstractPreference;
+
+/**
+ * A FlatPreference is the denormalized read model of an {@link AbstractPreference}. Whereas the preference types are stored in a joined
+ * table hierarchy, all values needed to list preferences are kept in one single table, so that reads are served with one index-friendly
+ * scan without any joins. Each FlatPreference shares the identifier of the preference it is derived from and is kept in sync by the
+ * {@link ConfigurationService} within the same transaction as the write operation.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Entity
+@Table(name = "COR_PREFERENCE_FLAT", indexes = @Index(name = "IDX_PREF_FLAT_TYPE_OWNER_KEY", columnList = "C_TYPE, C_OWNER, C_KEY"))
+public class FlatPreference implements Serializable {
+
+    /** Identifier of the preference this read model belongs to. */
+    @Id
+    @Column(name = "C_PREFERENCE_ID")
+    private Long id;
+
+    /** Scope of the preference. */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "C_TYPE", nullable = false)
+    private PropertyScope type;
+
+    /** Owner of the preference, {@literal null} in application scope. */
+    @Column(name = "C_OWNER")
+    private String owner;
+
+    /** Key of the preference. */
+    @Column(name = "C_KEY", nullable = false)
+    private String key;
+
+    /** The String value of the preference. */
+    @Column(name = "C_VALUE")
+    private String value;
+
+    /** The float value of the preference. */
+    @Column(name = "C_FLOAT_VALUE")
+    private Float floatValue;
+
+    /** Minimum value. */
+    @Column(name = "C_MINIMUM")
+    private int minimum;
+
+    /** Maximum value. */
+    @Column(name = "C_MAXIMUM")
+    private int maximum;
+
+    /** Description text of the preference. */
+    @Column(name = "C_DESCRIPTION")
+    private String description;
+
+    /** Optimistic locking version of the preference, a copy only. */
+    @Column(name = "C_VERSION")
+    private long version;
+
+    /** Dear JPA... */
+    protected FlatPreference() {
+    }
+
+    /**
+     * Create a FlatPreference from a persisted {@code preference}.
+     *
+     * @param preference The preference to derive from
+     */
+    public FlatPreference(AbstractPreference preference) {
+        id = preference.getId();
+        type = preference.getType();
+        owner = preference.getOwner();
+        key = preference.getKey();
+        value = preference.getValue();
+        floatValue = preference.getFloatValue();
+        minimum = preference.getMinimum();
+        maximum = preference.getMaximum();
+        description = preference.getDescription();
+        version = preference.getVersion();
+    }
+
+    public PropertyScope getType() {
+        return type;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Float getFloatValue() {
+        return floatValue;
+    }
+
+    public int getMinimum() {
+        return minimum;
+    }
+
+    public int getMaximum() {
+        return maximum;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Use all fields.
+     */
+    @Override
+    public String toString() {
+        return "FlatPreference{" +
+                "type=" + type +
+                ", owner='" + owner + '\'' +
+                ", key='" + key + '\'' +
+                ", value='" + value + '\'' +
+                ", floatValue=" + floatValue +
+                ", minimum=" + minimum +
+                ", maximum=" + maximum +
+                ", description='" + description + '\'' +
+                ", version=" + version +
+                '}';
+    }
+}
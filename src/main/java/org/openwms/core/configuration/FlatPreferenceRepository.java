@@ -0,0 +1,215 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * A FlatPreferenceRepository is a Spring Data JPA repository to access the denormalized read model of preferences. The find methods
+ * are projection queries that return {@link PreferenceVO}s instead of managed entities, they are meant to run in read-only transactions.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see FlatPreference
+ * @since 2.0
+ */
+interface FlatPreferenceRepository extends JpaRepository<FlatPreference, Long>, FlatPreferenceRepositoryCustom {
+
+    /** Constructor expression used by all projection queries. */
+    String SELECT_VO = "select new org.openwms.core.configuration.PreferenceVO(f.type, f.owner, f.key, f.value, f.floatValue, "
+            + "f.minimum, f.maximum, f.description, f.version) from FlatPreference f";
+
+    /** Constructor expression used by the projection queries that read in pages. */
+    String SELECT_KEYED_VO = "select new org.openwms.core.configuration.KeyedPreferenceVO(f.id, f.type, f.owner, f.key, f.value, "
+            + "f.floatValue, f.minimum, f.maximum, f.description, f.version) from FlatPreference f";
+
+    /**
+     * Find all preferences.
+     *
+     * @return A list of all preferences or an empty list, never {@literal null}
+     */
+    @Query(SELECT_VO)
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"))
+    List<PreferenceVO> findAllVOs();
+
+    /**
+     * Find all preferences of the given {@code type}.
+     *
+     * @param type The scope to search for
+     * @return A list of all preferences or an empty list, never {@literal null}
+     */
+    @Query(SELECT_VO + " where f.type = :type")
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"))
+    List<PreferenceVO> findVOsByType(@Param("type") PropertyScope type);
+
+    /**
+     * Find all preferences of the given {@code type} and {@code owner}.
+     *
+     * @param type The scope to search for
+     * @param owner The owner
+     * @return A list of all preferences or an empty list, never {@literal null}
+     */
+    @Query(SELECT_VO + " where f.type = :type and f.owner = :owner")
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"))
+    List<PreferenceVO> findVOsByTypeAndOwner(@Param("type") PropertyScope type, @Param("owner") String owner);
+
+    /**
+     * Find the next page of all preferences, ordered by identifier.
+     *
+     * @param lastId The identifier of the last preference of the previous page, the page starts after it
+     * @param pageable The size of the page, always the first one
+     * @return The preferences of the page, an empty list beyond the last page, never {@literal null}
+     */
+    @Query(SELECT_KEYED_VO + " where f.id > :lastId order by f.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"))
+    List<KeyedPreferenceVO> findVOPage(@Param("lastId") long lastId, Pageable pageable);
+
+    /**
+     * Find the next page of the preferences of the given {@code type}, ordered by identifier.
+     *
+     * @param type The scope to search for
+     * @param lastId The identifier of the last preference of the previous page, the page starts after it
+     * @param pageable The size of the page, always the first one
+     * @return The preferences of the page, an empty list beyond the last page, never {@literal null}
+     */
+    @Query(SELECT_KEYED_VO + " where f.type = :type and f.id > :lastId order by f.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"))
+    List<KeyedPreferenceVO> findVOPageByType(@Param("type") PropertyScope type, @Param("lastId") long lastId, Pageable pageable);
+
+    /**
+     * Find the next page of the preferences of the given {@code type} and {@code owner}, ordered by identifier.
+     *
+     * @param type The scope to search for
+     * @param owner The owner
+     * @param lastId The identifier of the last preference of the previous page, the page starts after it
+     * @param pageable The size of the page, always the first one
+     * @return The preferences of the page, an empty list beyond the last page, never {@literal null}
+     */
+    @Query(SELECT_KEYED_VO + " where f.type = :type and f.owner = :owner and f.id > :lastId order by f.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"))
+    List<KeyedPreferenceVO> findVOPageByTypeAndOwner(@Param("type") PropertyScope type, @Param("owner") String owner,
+            @Param("lastId") long lastId, Pageable pageable);
+
+    /**
+     * Find all preferences of the given {@code type} that belong to one of the {@code owners}.
+     *
+     * @param type The scope to search for
+     * @param owners The owners, must not be empty
+     * @return A list of all preferences or an empty list, never {@literal null}
+     */
+    @Query(SELECT_VO + " where f.type = :type and f.owner in :owners")
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"))
+    List<PreferenceVO> findVOsByTypeAndOwners(@Param("type") PropertyScope type, @Param("owners") Collection<String> owners);
+
+    /**
+     * Count all preferences of the given {@code type}.
+     *
+     * @param type The scope
+     * @return The number of preferences
+     */
+    long countByType(PropertyScope type);
+
+    /**
+     * Find the preference with the given natural key.
+     *
+     * @param type The scope to search for
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key
+     * @return The preference or {@literal null}
+     */
+    @Query(SELECT_VO + " where f.type = :type and f.key = :key and (f.owner = :owner or (:owner is null and f.owner is null))")
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"))
+    PreferenceVO findVOByKey(@Param("type") PropertyScope type, @Param("owner") String owner, @Param("key") String key);
+
+    /**
+     * Set the String value of the preference with the given natural key and increment its version.
+     *
+     * @param type The scope
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key
+     * @param value The new value
+     * @return The number of updated rows
+     */
+    @Modifying
+    @Query("update FlatPreference f set f.value = :value, f.version = f.version + 1 where f.type = :type and f.key = :key "
+            + "and (f.owner = :owner or (:owner is null and f.owner is null))")
+    int updateValue(@Param("type") PropertyScope type, @Param("owner") String owner, @Param("key") String key,
+            @Param("value") String value);
+
+    /**
+     * Set the float value of the preference with the given natural key and increment its version.
+     *
+     * @param type The scope
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key
+     * @param floatValue The new value
+     * @return The number of updated rows
+     */
+    @Modifying
+    @Query("update FlatPreference f set f.floatValue = :floatValue, f.version = f.version + 1 where f.type = :type and f.key = :key "
+            + "and (f.owner = :owner or (:owner is null and f.owner is null))")
+    int updateFloatValue(@Param("type") PropertyScope type, @Param("owner") String owner, @Param("key") String key,
+            @Param("floatValue") Float floatValue);
+
+    /**
+     * Set the String value and the float value of the preference with the given natural key and increment its version once.
+     *
+     * @param type The scope
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key
+     * @param value The new String value
+     * @param floatValue The new float value
+     * @return The number of updated rows
+     */
+    @Modifying
+    @Query("update FlatPreference f set f.value = :value, f.floatValue = :floatValue, f.version = f.version + 1 where f.type = :type "
+            + "and f.key = :key and (f.owner = :owner or (:owner is null and f.owner is null))")
+    int updateValues(@Param("type") PropertyScope type, @Param("owner") String owner, @Param("key") String key,
+            @Param("value") String value, @Param("floatValue") Float floatValue);
+
+    /**
+     * Delete the read model of the preference with the given {@code id}, does nothing if it does not exist.
+     *
+     * @param id The identifier of the preference
+     * @return The number of deleted rows
+     */
+    @Modifying
+    @Query("delete from FlatPreference f where f.id = :id")
+    int deleteByPreferenceId(@Param("id") Long id);
+
+    /**
+     * Calculate the number of entries, the sum of their versions and the highest preference identifier, grouped by scope.
+     *
+     * @return One row per scope with entries, with the scope, the number, the sum of versions and the highest identifier
+     */
+    @Query("select f.type, count(f), sum(f.version), max(f.id) from FlatPreference f group by f.type")
+    List<Object[]> findChecksums();
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A FlatPreferenceRepositoryCustom defines queries on the read model that are composed at runtime.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+interface FlatPreferenceRepositoryCustom {
+
+    /**
+     * Find all preferences that match all given filters and read only the selected {@code fields}.
+     *
+     * @param type The scope to search for, {@literal null} for all scopes
+     * @param owner The owner to search for, {@literal null} for all owners
+     * @param keyPrefix The beginning of the key to search for, {@literal null} for all keys
+     * @param fields The fields to read, must not be empty
+     * @return A list of preferences or an empty list, never {@literal null}. Only the selected fields are set, all others are
+     * {@literal null} respectively 0
+     */
+    List<PreferenceVO> findVOs(PropertyScope type, String owner, String keyPrefix, Set<PreferenceField> fields);
+}
@@ -0,0 +1,118 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.openwms.core.configuration.PreferenceMetrics.RepositoryQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * A FlatPreferenceRepositoryImpl composes the projection and the restrictions of the query from the selected fields and the given filters,
+ * so only the needed columns are read. A key prefix is matched with a {@code LIKE} that can use the index on type, owner and key.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+@Repository
+class FlatPreferenceRepositoryImpl implements FlatPreferenceRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+    @Autowired(required = false)
+    private PreferenceMetrics metrics = PreferenceMetrics.NOOP;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<PreferenceVO> findVOs(PropertyScope type, String owner, String keyPrefix, Set<PreferenceField> fields) {
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("At least one field must be selected");
+        }
+        List<String> restrictions = new ArrayList<>(3);
+        if (type != null) {
+            restrictions.add("f.type = :type");
+        }
+        if (owner != null) {
+            restrictions.add("f.owner = :owner");
+        }
+        if (keyPrefix != null) {
+            restrictions.add("f.key like :keyPrefix escape '\\'");
+        }
+        String jpql = fields.stream().map(f -> "f." + f.getFieldName())
+                .collect(Collectors.joining(", ", "select ", " from FlatPreference f"))
+                + (restrictions.isEmpty() ? "" : restrictions.stream().collect(Collectors.joining(" and ", " where ", "")));
+        Query query = em.createQuery(jpql).setHint("org.hibernate.flushMode", "MANUAL");
+        if (type != null) {
+            query.setParameter("type", type);
+        }
+        if (owner != null) {
+            query.setParameter("owner", owner);
+        }
+        if (keyPrefix != null) {
+            query.setParameter("keyPrefix", keyPrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        List<?> rows = metrics.query(RepositoryQuery.FIND_FIELDS, type).record(query::getResultList);
+        List<PreferenceVO> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = fields.size() == 1 ? new Object[]{row} : (Object[]) row;
+            Map<PreferenceField, Object> values = new EnumMap<>(PreferenceField.class);
+            int i = 0;
+            for (PreferenceField field : fields) {
+                values.put(field, columns[i++]);
+            }
+            result.add(toVO(values));
+        }
+        return result;
+    }
+
+    private static PreferenceVO toVO(Map<PreferenceField, Object> values) {
+        return new PreferenceVO(
+                (PropertyScope) values.get(PreferenceField.TYPE),
+                (String) values.get(PreferenceField.OWNER),
+                (String) values.get(PreferenceField.KEY),
+                (String) values.get(PreferenceField.VALUE),
+                (Float) values.get(PreferenceField.FLOAT_VALUE),
+                intOf(values.get(PreferenceField.MINIMUM)),
+                intOf(values.get(PreferenceField.MAXIMUM)),
+                (String) values.get(PreferenceField.DESCRIPTION),
+                values.containsKey(PreferenceField.VERSION) ? ((Number) values.get(PreferenceField.VERSION)).longValue() : 0);
+    }
+
+    private static int intOf(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+
+/**
+ * A JpaReactivePreferenceRepository is a {@link ReactivePreferenceRepository} on top of the blocking JPA read model. Results are read in
+ * pages of <i>openwms.core.config.reactive-page-size</i> preferences as the subscriber requests them, each page in a read-only transaction
+ * on the <i>preferencesReactiveExecutor</i>, see {@link PagedQueryPublisher}. A rejected query is emitted as error.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+class JpaReactivePreferenceRepository implements ReactivePreferenceRepository {
+
+    @Autowired
+    private FlatPreferenceRepository flatPreferenceRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier("preferencesReactiveExecutor")
+    private TaskExecutor executor;
+    @Value("${openwms.core.config.reactive-page-size:500}")
+    private int pageSize;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<PreferenceVO> findAll() {
+        return query(flatPreferenceRepository::findVOPage);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<PreferenceVO> findByTypeAndOwner(PropertyScope type, String owner) {
+        return query((lastId, page) -> owner == null ? flatPreferenceRepository.findVOPageByType(type, lastId, page) :
+                flatPreferenceRepository.findVOPageByTypeAndOwner(type, owner, lastId, page));
+    }
+
+    private Flux<PreferenceVO> query(BiFunction<Long, Pageable, List<KeyedPreferenceVO>> query) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return Flux.from(new PagedQueryPublisher(query, pageSize, template, executor));
+    }
+}
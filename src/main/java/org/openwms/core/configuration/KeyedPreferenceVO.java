@@ -0,0 +1,76 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+/**
+ * A KeyedPreferenceVO is a {@link PreferenceVO} together with the identifier of its read model, created by the projection queries that
+ * read the read model in pages ordered by identifier. The identifier is the position to continue reading from and never leaves the
+ * repository layer.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see PagedQueryPublisher
+ * @since 2.0
+ */
+public final class KeyedPreferenceVO {
+
+    private final long id;
+    private final PreferenceVO preference;
+
+    /**
+     * Create a new KeyedPreferenceVO, used by the projection queries.
+     *
+     * @param id The identifier of the read model
+     * @param type The scope
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key
+     * @param value The String value
+     * @param floatValue The float value
+     * @param minimum The minimum value
+     * @param maximum The maximum value
+     * @param description The description text
+     * @param version The optimistic locking version
+     */
+    public KeyedPreferenceVO(long id, PropertyScope type, String owner, String key, String value, Float floatValue, int minimum,
+            int maximum, String description, long version) {
+        this(id, new PreferenceVO(type, owner, key, value, floatValue, minimum, maximum, description, version));
+    }
+
+    /**
+     * Create a new KeyedPreferenceVO of an existing {@code preference}.
+     *
+     * @param id The identifier of the read model
+     * @param preference The preference
+     */
+    KeyedPreferenceVO(long id, PreferenceVO preference) {
+        this.id = id;
+        this.preference = preference;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    PreferenceVO getPreference() {
+        return preference;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A PagedQueryPublisher emits the result of a query page by page. The next page is read only when the subscriber has requested more
+ * elements than are left of the current one, so at most one page is held in memory per subscription and a slow subscriber slows down the
+ * reading instead of filling the memory. Each page is read in its own transaction on the {@code executor}, elements are emitted on that
+ * executor too.
+ * <p>
+ * Pages are read by keyset, ordered by identifier and starting after the identifier of the last element of the previous page, so each
+ * page costs the same however far the subscriber has read. Because pages are read independently, the elements are no consistent snapshot
+ * if preferences change in between, but no preference is skipped or emitted twice because others have been created or deleted.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+final class PagedQueryPublisher implements Publisher<PreferenceVO> {
+
+    private final BiFunction<Long, Pageable, List<KeyedPreferenceVO>> query;
+    private final int pageSize;
+    private final TransactionTemplate template;
+    private final Executor executor;
+
+    /**
+     * Create a publisher that executes the {@code query} once per page.
+     *
+     * @param query Reads the page after the given identifier, ordered by identifier
+     * @param pageSize Number of elements read with one query
+     * @param template Defines the transaction of each query
+     * @param executor Executes the queries and emits the elements
+     */
+    PagedQueryPublisher(BiFunction<Long, Pageable, List<KeyedPreferenceVO>> query, int pageSize, TransactionTemplate template,
+            Executor executor) {
+        this.query = query;
+        this.pageSize = Math.max(pageSize, 1);
+        this.template = template;
+        this.executor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Nothing is read before the subscriber requests elements.
+     */
+    @Override
+    public void subscribe(Subscriber<? super PreferenceVO> subscriber) {
+        subscriber.onSubscribe(new PageSubscription(subscriber));
+    }
+
+    /**
+     * Signals are emitted by one drain task at a time, the task runs as long as there is demand and requests that arrive meanwhile are
+     * handled by the running task. The buffer and the last read identifier are only accessed by that task.
+     */
+    private final class PageSubscription implements Subscription {
+
+        private final Subscriber<? super PreferenceVO> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final Deque<KeyedPreferenceVO> buffer = new ArrayDeque<>();
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+        private long lastId = Long.MIN_VALUE;
+        private boolean exhausted;
+
+        private PageSubscription(Subscriber<? super PreferenceVO> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of requested elements must be positive but was " + n);
+            } else {
+                requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException ex) {
+                    cancelled = true;
+                    subscriber.onError(ex);
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (emit()) {
+                    buffer.clear();
+                    return;
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Emit buffered elements and read further pages while there is demand.
+         *
+         * @return {@literal true} if the subscription has been terminated
+         */
+        private boolean emit() {
+            while (!cancelled) {
+                if (invalidRequest != null) {
+                    cancelled = true;
+                    subscriber.onError(invalidRequest);
+                    return true;
+                }
+                if (buffer.isEmpty() && exhausted) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return true;
+                }
+                if (requested.get() == 0) {
+                    return false;
+                }
+                if (buffer.isEmpty()) {
+                    List<KeyedPreferenceVO> next;
+                    try {
+                        next = template.execute(status -> query.apply(lastId, new PageRequest(0, pageSize)));
+                    } catch (RuntimeException ex) {
+                        cancelled = true;
+                        subscriber.onError(ex);
+                        return true;
+                    }
+                    exhausted = next.size() < pageSize;
+                    if (!next.isEmpty()) {
+                        lastId = next.get(next.size() - 1).getId();
+                    }
+                    buffer.addAll(next);
+                } else {
+                    if (requested.get() != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                    subscriber.onNext(buffer.poll().getPreference());
+                }
+            }
+            return true;
+        }
+    }
+}
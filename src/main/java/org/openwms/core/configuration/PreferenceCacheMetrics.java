@@ -0,0 +1,108 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * A PreferenceCacheMetrics exposes the Hibernate statistics of the preference cache regions as Micrometer meters, prefixed with
+ * {@code cache.} and tagged with the name of the region. It is only active when Hibernate statistics are enabled, what the Spring profile
+ * <i>preferences-cache</i> does.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see AbstractPreference#CACHE_REGION
+ * @see AbstractPreference#QUERY_CACHE_REGION
+ * @since 2.0
+ */
+@Component
+@ConditionalOnProperty(name = "spring.jpa.properties.hibernate.generate_statistics", havingValue = "true")
+class PreferenceCacheMetrics implements MeterBinder {
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Hit, miss and put counts and the current size of each preference region plus the overall query cache counters.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        bindRegion(registry, statistics, AbstractPreference.CACHE_REGION);
+        bindRegion(registry, statistics, AbstractPreference.QUERY_CACHE_REGION);
+        FunctionCounter.builder("cache.query.gets", statistics, Statistics::getQueryCacheHitCount)
+                .tag("result", "hit")
+                .description("Queries served from the query cache")
+                .register(registry);
+        FunctionCounter.builder("cache.query.gets", statistics, Statistics::getQueryCacheMissCount)
+                .tag("result", "miss")
+                .description("Queries not found in the query cache")
+                .register(registry);
+        FunctionCounter.builder("cache.query.puts", statistics, Statistics::getQueryCachePutCount)
+                .description("Query results put into the query cache")
+                .register(registry);
+    }
+
+    /**
+     * The statistics of a region are looked up on each measurement, a region that does not exist (yet) counts as empty.
+     */
+    private void bindRegion(MeterRegistry registry, Statistics statistics, String region) {
+        FunctionCounter.builder("cache.gets", statistics, region(region, SecondLevelCacheStatistics::getHitCount))
+                .tags("cache", region, "result", "hit")
+                .description("Entries served from the cache region")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", statistics, region(region, SecondLevelCacheStatistics::getMissCount))
+                .tags("cache", region, "result", "miss")
+                .description("Entries not found in the cache region")
+                .register(registry);
+        FunctionCounter.builder("cache.puts", statistics, region(region, SecondLevelCacheStatistics::getPutCount))
+                .tag("cache", region)
+                .description("Entries put into the cache region")
+                .register(registry);
+        Gauge.builder("cache.size", statistics, region(region, SecondLevelCacheStatistics::getElementCountInMemory))
+                .tag("cache", region)
+                .description("Entries currently held in memory by the cache region")
+                .register(registry);
+    }
+
+    private static ToDoubleFunction<Statistics> region(String region, ToDoubleFunction<SecondLevelCacheStatistics> value) {
+        return statistics -> {
+            SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+            return regionStatistics == null ? 0 : value.applyAsDouble(regionStatistics);
+        };
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.io.Serializable;
+import java.util.Date;
+
+import org.openwms.core.configuration.file.PreferenceKey;
+
+/**
+ * A PreferenceChange is an entry of the change-log of preferences. It is written in the same transaction as the change of the preference
+ * itself and read by all nodes of a cluster to invalidate their in-process caches. Entries are ordered by their sequence number.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see PreferenceChangeLog
+ * @since 2.0
+ */
+@Entity
+@Table(name = "COR_PREFERENCE_CHANGELOG", indexes = @Index(name = "IDX_PREF_CHANGELOG_CREATED", columnList = "C_CREATED"))
+public class PreferenceChange implements Serializable {
+
+    /** Sequence number of the change. */
+    @Id
+    @GeneratedValue
+    @Column(name = "C_SEQ")
+    private Long seq;
+
+    /** When the change has been written. */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "C_CREATED", nullable = false)
+    private Date created;
+
+    /** Identifier of the node that changed the preference. */
+    @Column(name = "C_NODE", nullable = false)
+    private String node;
+
+    /** Scope of the changed preference. */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "C_TYPE", nullable = false)
+    private PropertyScope type;
+
+    /** Owner of the changed preference, {@literal null} in application scope. */
+    @Column(name = "C_OWNER")
+    private String owner;
+
+    /** Key of the changed preference. */
+    @Column(name = "C_KEY", nullable = false)
+    private String key;
+
+    /** Identifier of the changed preference, {@literal null} if unknown to the writer. */
+    @Column(name = "C_PREFERENCE_ID")
+    private Long preferenceId;
+
+    /** Dear JPA... */
+    protected PreferenceChange() {
+    }
+
+    /**
+     * Create a new PreferenceChange.
+     *
+     * @param node Identifier of the node that changed the preference
+     * @param type Scope of the changed preference
+     * @param owner Owner of the changed preference
+     * @param key Key of the changed preference
+     * @param preferenceId Identifier of the changed preference, may be {@literal null}
+     */
+    public PreferenceChange(String node, PropertyScope type, String owner, String key, Long preferenceId) {
+        this.created = new Date();
+        this.node = node;
+        this.type = type;
+        this.owner = owner;
+        this.key = key;
+        this.preferenceId = preferenceId;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public PropertyScope getType() {
+        return type;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Long getPreferenceId() {
+        return preferenceId;
+    }
+
+    /**
+     * Return a {@link PreferenceKey} of the changed preference.
+     *
+     * @return A {@link PreferenceKey}
+     */
+    public PreferenceKey getPrefKey() {
+        return new PreferenceKey(type, owner, key);
+    }
+
+    @Override
+    public String toString() {
+        return "PreferenceChange{" +
+                "seq=" + seq +
+                ", node='" + node + '\'' +
+                ", type=" + type +
+                ", owner='" + owner + '\'' +
+                ", key='" + key + '\'' +
+                '}';
+    }
+}
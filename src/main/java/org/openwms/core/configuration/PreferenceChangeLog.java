@@ -0,0 +1,214 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A PreferenceChangeLog keeps the in-process caches of all nodes of a cluster in sync without an external broker. Each change of a
+ * preference is recorded in the {@link PreferenceChange} table within the transaction of the change. Every node polls the table by sequence
+ * number each <i>openwms.core.config.change-log-poll-interval</i> milliseconds and invalidates only the affected preferences in its own
+ * caches. Setting the interval to 0 disables polling.
+ * <p>
+ * Sequence numbers are assigned on insert but become visible on commit, so a change with a lower number may show up after one with a
+ * higher number, no matter how many numbers have been assigned in between. Therefore the numbers skipped by a poll are remembered as gaps
+ * and only these are read again by the following polls, until they show up or <i>openwms.core.config.change-log-late-commit-window</i>
+ * milliseconds have passed. The window has to cover the longest transaction that changes preferences. At most {@value #MAX_GAPS} gaps are
+ * remembered, numbers skipped beyond are not read again. Changes older than <i>openwms.core.config.change-log-retention</i> milliseconds
+ * are purged.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+class PreferenceChangeLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreferenceChangeLog.class);
+    /** Purge old changes every n-th poll only. */
+    private static final int PURGE_EVERY = 60;
+    /** Maximum number of remembered gaps. */
+    static final int MAX_GAPS = 1000;
+    private final String node = UUID.randomUUID().toString();
+    @Autowired
+    private PreferenceChangeRepository changeRepository;
+    @Autowired
+    private UserPreferenceCache userPreferenceCache;
+    @Autowired
+    private PreferenceKeyIndex keyIndex;
+    @Autowired
+    private EntityManagerFactory emf;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Value("${openwms.core.config.change-log-poll-interval:1000}")
+    private long pollInterval;
+    @Value("${openwms.core.config.change-log-late-commit-window:60000}")
+    private long lateCommitWindow;
+    @Value("${openwms.core.config.change-log-retention:3600000}")
+    private long retention;
+    /** Sequence numbers skipped by a poll that may still be committed, with the time they have been skipped. */
+    private final ConcurrentMap<Long, Long> gaps = new ConcurrentHashMap<>();
+    private volatile long lastSeq;
+    private int polls;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void start() {
+        if (pollInterval <= 0) {
+            return;
+        }
+        Long max = new TransactionTemplate(transactionManager).execute(status -> changeRepository.findMaxSeq());
+        lastSeq = max == null ? 0 : max;
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("preferences-changelog-"));
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Record a change of a preference, has to be called within the transaction of the change. The preferences of the same scope and owner
+     * are dropped from the key index of this node after commit.
+     *
+     * @param type Scope of the changed preference
+     * @param owner Owner of the changed preference
+     * @param key Key of the changed preference
+     * @param preferenceId Identifier of the changed preference, may be {@literal null}
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(PropertyScope type, String owner, String key, Long preferenceId) {
+        changeRepository.save(new PreferenceChange(node, type, owner, key, preferenceId));
+        keyIndex.invalidate(type, owner);
+    }
+
+    /**
+     * Record a change of the {@code preference}, has to be called within the transaction of the change.
+     *
+     * @param preference The changed preference
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(AbstractPreference preference) {
+        record(preference.getType(), preference.getOwner(), preference.getKey(), preference.getId());
+    }
+
+    /**
+     * Read all changes since the last poll and all changes that filled a gap, and invalidate the affected preferences in the caches of
+     * this node.
+     *
+     * @return The number of processed changes
+     */
+    int poll() {
+        long now = System.currentTimeMillis();
+        gaps.values().removeIf(skipped -> skipped < now - lateCommitWindow);
+        List<PreferenceChange> changes = new TransactionTemplate(transactionManager).execute(status -> findChanges(lastSeq));
+        int count = 0;
+        for (PreferenceChange change : changes) {
+            long seq = change.getSeq();
+            if (seq > lastSeq) {
+                for (long skipped = lastSeq + 1; skipped < seq && gaps.size() < MAX_GAPS; skipped++) {
+                    gaps.put(skipped, now);
+                }
+                lastSeq = seq;
+            } else if (gaps.remove(seq) == null) {
+                continue;
+            }
+            count++;
+            if (!node.equals(change.getNode())) {
+                invalidate(change);
+            }
+        }
+        if (++polls % PURGE_EVERY == 0) {
+            purge();
+        }
+        return count;
+    }
+
+    private List<PreferenceChange> findChanges(long after) {
+        List<PreferenceChange> result = new ArrayList<>(changeRepository.findAfter(after));
+        List<Long> missing = new ArrayList<>(gaps.keySet());
+        Collections.sort(missing);
+        for (int i = 0; i < missing.size(); i += PreferenceRepositoryImpl.IN_LIST_CHUNK_SIZE) {
+            result.addAll(changeRepository.findBySeqIn(missing.subList(i, Math.min(i + PreferenceRepositoryImpl.IN_LIST_CHUNK_SIZE,
+                    missing.size()))));
+        }
+        return result;
+    }
+
+    private void invalidate(PreferenceChange change) {
+        LOGGER.debug("Invalidating preference [{}] changed on node [{}]", change.getPrefKey(), change.getNode());
+        userPreferenceCache.invalidate(change.getType(), change.getOwner());
+        keyIndex.invalidate(change.getType(), change.getOwner());
+        Cache cache = emf.getCache();
+        if (change.getPreferenceId() == null) {
+            cache.evict(AbstractPreference.class);
+        } else {
+            cache.evict(AbstractPreference.class, change.getPreferenceId());
+        }
+        emf.unwrap(SessionFactory.class).getCache().evictQueryRegion(AbstractPreference.QUERY_CACHE_REGION);
+    }
+
+    private void purge() {
+        Date before = new Date(System.currentTimeMillis() - retention);
+        int purged = new TransactionTemplate(transactionManager).execute(status -> changeRepository.deleteCreatedBefore(before));
+        if (purged > 0) {
+            LOGGER.debug("Purged [{}] changes of preferences older than [{}]", purged, before);
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Polling the change-log of preferences failed: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * A PreferenceChangeRepository is a Spring Data JPA repository to write and poll the change-log of preferences.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see PreferenceChange
+ * @since 2.0
+ */
+interface PreferenceChangeRepository extends JpaRepository<PreferenceChange, Long> {
+
+    /**
+     * Find all changes with a sequence number greater than {@code seq}, ordered by sequence number.
+     *
+     * @param seq The sequence number to start after
+     * @return A list of changes or an empty list, never {@literal null}
+     */
+    @Query("select c from PreferenceChange c where c.seq > :seq order by c.seq")
+    List<PreferenceChange> findAfter(@Param("seq") long seq);
+
+    /**
+     * Find the changes with the given sequence numbers.
+     *
+     * @param seqs The sequence numbers
+     * @return A list of the changes that exist or an empty list, never {@literal null}
+     */
+    @Query("select c from PreferenceChange c where c.seq in :seqs")
+    List<PreferenceChange> findBySeqIn(@Param("seqs") Collection<Long> seqs);
+
+    /**
+     * Find the highest sequence number.
+     *
+     * @return The sequence number or {@literal null} if the change-log is empty
+     */
+    @Query("select max(c.seq) from PreferenceChange c")
+    Long findMaxSeq();
+
+    /**
+     * Delete all changes that have been written before {@code before}.
+     *
+     * @param before The point in time
+     * @return The number of deleted changes
+     */
+    @Modifying
+    @Query("delete from PreferenceChange c where c.created < :before")
+    int deleteCreatedBefore(@Param("before") Date before);
+}
@@ -0,0 +1,109 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+/**
+ * A PreferenceChecksum summarizes the preferences of one scope with their number, the sum of their versions and the highest identifier.
+ * Comparing the checksums of the preferences and of the read model detects missing, additional and stale entries of the read model,
+ * because every change of a preference increments its version.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+final class PreferenceChecksum {
+
+    /** Checksum of a scope without preferences. */
+    static final PreferenceChecksum EMPTY = new PreferenceChecksum(0, 0, 0);
+    private final long count;
+    private final long versionSum;
+    private final long maxId;
+
+    private PreferenceChecksum(long count, long versionSum, long maxId) {
+        this.count = count;
+        this.versionSum = versionSum;
+        this.maxId = maxId;
+    }
+
+    /**
+     * Create a checksum from the result of an aggregate query.
+     *
+     * @param count The number of preferences
+     * @param versionSum The sum of all versions, {@literal null} if there are no preferences
+     * @param maxId The highest identifier, {@literal null} if there are no preferences
+     * @return The checksum
+     */
+    static PreferenceChecksum of(Number count, Number versionSum, Number maxId) {
+        return new PreferenceChecksum(longOf(count), longOf(versionSum), longOf(maxId));
+    }
+
+    private static long longOf(Number number) {
+        return number == null ? 0 : number.longValue();
+    }
+
+    /**
+     * Combine this checksum with the checksum of other preferences of the same scope, e.g. stored in another shard.
+     *
+     * @param other The other checksum
+     * @return The combined checksum
+     */
+    PreferenceChecksum plus(PreferenceChecksum other) {
+        return new PreferenceChecksum(count + other.count, versionSum + other.versionSum, Math.max(maxId, other.maxId));
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PreferenceChecksum other = (PreferenceChecksum) o;
+        return count == other.count && versionSum == other.versionSum && maxId == other.maxId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(count);
+        result = 31 * result + Long.hashCode(versionSum);
+        return 31 * result + Long.hashCode(maxId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "PreferenceChecksum{count=" + count + ", versionSum=" + versionSum + ", maxId=" + maxId + '}';
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * A PreferenceCountMetrics registers a gauge {@code preferences.count} with the number of persisted preferences per {@link PropertyScope}.
+ * The gauges are evaluated when metrics are read, with one count query on the indexed read model per scope, nothing is done on the hot
+ * path.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+class PreferenceCountMetrics implements MeterBinder {
+
+    @Autowired
+    private FlatPreferenceRepository flatPreferenceRepository;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (PropertyScope scope : PropertyScope.values()) {
+            Gauge.builder("preferences.count", flatPreferenceRepository, r -> r.countByType(scope))
+                    .description("Number of persisted preferences")
+                    .tags("scope", scope.name())
+                    .register(registry);
+        }
+    }
+}
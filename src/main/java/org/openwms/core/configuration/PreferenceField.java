@@ -0,0 +1,104 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A PreferenceField is an attribute of a {@link PreferenceVO} that can be selected when preferences are listed. The name of each field is
+ * the attribute name of the read model as well as the property name in the serialized payload.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public enum PreferenceField {
+
+    TYPE("type", PreferenceVO::getType),
+    OWNER("owner", PreferenceVO::getOwner),
+    KEY("key", PreferenceVO::getKey),
+    VALUE("value", PreferenceVO::getValue),
+    FLOAT_VALUE("floatValue", PreferenceVO::getFloatValue),
+    MINIMUM("minimum", PreferenceVO::getMinimum),
+    MAXIMUM("maximum", PreferenceVO::getMaximum),
+    DESCRIPTION("description", PreferenceVO::getDescription),
+    VERSION("version", PreferenceVO::getVersion);
+
+    /** Fields that identify a preference. */
+    public static final Set<PreferenceField> IDENTITY = EnumSet.of(TYPE, OWNER, KEY);
+    private final String fieldName;
+    private final Function<PreferenceVO, Object> getter;
+
+    PreferenceField(String fieldName, Function<PreferenceVO, Object> getter) {
+        this.fieldName = fieldName;
+        this.getter = getter;
+    }
+
+    /**
+     * Return the name of the field.
+     *
+     * @return The name
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Return the value of this field of a {@code preference}.
+     *
+     * @param preference The preference
+     * @return The value, may be {@literal null}
+     */
+    public Object valueOf(PreferenceVO preference) {
+        return getter.apply(preference);
+    }
+
+    /**
+     * Resolve the fields with the given {@code fieldNames}.
+     *
+     * @param fieldNames Names of fields, may be {@literal null}
+     * @return The fields, empty if no names are given
+     * @throws InvalidPreferenceRequestException if a name is not the name of a field
+     */
+    public static Set<PreferenceField> of(Collection<String> fieldNames) {
+        Set<PreferenceField> result = EnumSet.noneOf(PreferenceField.class);
+        if (fieldNames == null) {
+            return result;
+        }
+        for (String fieldName : fieldNames) {
+            result.add(byName(fieldName.trim()));
+        }
+        return result;
+    }
+
+    private static PreferenceField byName(String fieldName) {
+        for (PreferenceField field : values()) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new InvalidPreferenceRequestException("Unknown field of a preference: " + fieldName);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.openwms.core.configuration.file.PreferenceKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A PreferenceKeyIndex answers queries for all preferences whose key starts with a prefix, e.g. {@code ui.grid.orders.}, from memory. The
+ * preferences of each scope and owner are held in a map sorted by key, which is loaded from the read model on the first query and dropped
+ * whenever one of its preferences changes. A prefix query is then a range scan on that map, without touching the database. Maps are always
+ * loaded from the primary database, never from a read replica, because a lagging replica would keep an outdated state in the index.
+ * <p>
+ * At most <i>openwms.core.config.key-index-max-partitions</i> combinations of scope and owner are kept at the same time, when the limit is
+ * reached the least recently queried partition is evicted, 0 switches the index off. Partitions that have not been queried for <i>
+ * openwms.core.config.key-index-idle-timeout</i> milliseconds expire. Hit and miss counts are published as Micrometer meters, prefixed with
+ * {@code preferences.key-index.}.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+class PreferenceKeyIndex implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreferenceKeyIndex.class);
+    @Autowired
+    private FlatPreferenceRepository flatPreferenceRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Value("${openwms.core.config.key-index-max-partitions:10000}")
+    private int maxPartitions;
+    @Value("${openwms.core.config.key-index-idle-timeout:1800000}")
+    private long idleTimeout;
+    private BoundedCache<PreferenceKey, Partition> partitions;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        partitions = new BoundedCache<>(maxPartitions, idleTimeout);
+    }
+
+    /**
+     * Find all preferences of the {@code scope} and {@code owner} with a key that starts with the {@code keyPrefix}, ordered by key.
+     *
+     * @param scope The scope of the preferences
+     * @param owner The owner, {@literal null} in application scope
+     * @param keyPrefix The beginning of the key, an empty String matches all keys
+     * @return The preferences or {@literal null} if the query can not be served by the index
+     */
+    List<PreferenceVO> findByKeyPrefix(PropertyScope scope, String owner, String keyPrefix) {
+        NavigableMap<String, PreferenceVO> byKey = get(scope, owner);
+        if (byKey == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        List<PreferenceVO> result = new ArrayList<>();
+        for (Map.Entry<String, PreferenceVO> entry : byKey.tailMap(keyPrefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(keyPrefix)) {
+                break;
+            }
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Drop the preferences of the {@code scope} and {@code owner} from the index. If a transaction is active, they are dropped after
+     * commit, so that a concurrent query can not load the old state again.
+     *
+     * @param scope The scope of the changed preference
+     * @param owner The owner of the changed preference
+     */
+    void invalidate(PropertyScope scope, String owner) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    partitions.remove(new PreferenceKey(scope, owner));
+                }
+            });
+        } else {
+            partitions.remove(new PreferenceKey(scope, owner));
+        }
+    }
+
+    private NavigableMap<String, PreferenceVO> get(PropertyScope scope, String owner) {
+        if (maxPartitions <= 0) {
+            return null;
+        }
+        PreferenceKey id = new PreferenceKey(scope, owner);
+        Partition partition = partitions.get(id);
+        if (partition == null) {
+            Partition created = new Partition();
+            partition = partitions.putIfAbsent(id, created);
+            if (partition == null) {
+                partition = created;
+                partition.load(() -> read(scope, owner), scope, owner);
+            }
+        }
+        try {
+            return partition.future.join();
+        } catch (RuntimeException ex) {
+            partitions.remove(id, partition);
+            return null;
+        }
+    }
+
+    private List<PreferenceVO> read(PropertyScope scope, String owner) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template.execute(status -> owner == null ? flatPreferenceRepository.findVOsByType(scope) :
+                flatPreferenceRepository.findVOsByTypeAndOwner(scope, owner));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Number of hits and misses, evicted partitions and the current number of partitions.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("preferences.key-index.hit", hits, AtomicLong::get)
+                .description("Prefix queries served from the index")
+                .register(registry);
+        FunctionCounter.builder("preferences.key-index.miss", misses, AtomicLong::get)
+                .description("Prefix queries that could not be served from the index")
+                .register(registry);
+        FunctionCounter.builder("preferences.key-index.evicted", this, i -> i.partitions.getEvictions())
+                .description("Partitions evicted because the index was full or they expired")
+                .register(registry);
+        Gauge.builder("preferences.key-index.size", this, i -> i.partitions.size())
+                .description("Partitions currently kept in memory")
+                .register(registry);
+    }
+
+    private static final class Partition {
+
+        private final CompletableFuture<NavigableMap<String, PreferenceVO>> future = new CompletableFuture<>();
+
+        private void load(Supplier<List<PreferenceVO>> reader, PropertyScope scope, String owner) {
+            try {
+                NavigableMap<String, PreferenceVO> byKey = new TreeMap<>();
+                for (PreferenceVO preference : reader.get()) {
+                    byKey.put(preference.getKey(), preference);
+                }
+                future.complete(Collections.unmodifiableNavigableMap(byKey));
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Indexing preferences of scope [{}] and owner [{}] failed: {}", scope, owner, ex.getMessage());
+                future.completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * A PreferenceMetrics holds all Micrometer meters to instrument the access to preferences. All meters are created once at startup for each
+ * combination of operation and {@link PropertyScope}, so recording on the hot path is an array lookup plus the recording itself, without
+ * any tag resolution. Operations that are not bound to a particular scope are tagged with scope {@value #ANY_SCOPE}.
+ * <p>
+ * Without a {@link MeterRegistry} in the application context the meters are created in an empty registry and record nothing. {@link #NOOP}
+ * is meant for components that are also used in contexts where this class is not a bean at all, like the repository fragments in sliced
+ * JPA tests or the file loader in contexts that scan its package only.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+public class PreferenceMetrics {
+
+    /** Tag value for operations that are not bound to a scope. Default {@value} */
+    public static final String ANY_SCOPE = "ANY";
+    /** Instance that records nothing. */
+    public static final PreferenceMetrics NOOP = new PreferenceMetrics(new CompositeMeterRegistry());
+    private static final PropertyScope[] SCOPES = PropertyScope.values();
+    private final Timer[][] serviceTimers;
+    private final Timer[][] queryTimers;
+    private final Timer fileLoadTimer;
+    private final Counter[] fileLoadedCounters;
+
+    /**
+     * Operations of the {@link ConfigurationService}.
+     */
+    public enum ServiceOperation {
+        FIND_ALL("findAll"), FIND_BY_TYPE("findByType"), SAVE("save"), DELETE("delete"), MERGE("merge");
+
+        private final String tag;
+
+        ServiceOperation(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Queries of the preference repository.
+     */
+    public enum RepositoryQuery {
+        FIND_ALL("findAll"), FIND_BY_OWNER("findByOwner"), FIND_BY_OWNERS("findByOwners"), FIND_BY_KEY("findByKey"),
+        UPDATE_BY_KEY("updateByKey"), FIND_FIELDS("findFields");
+
+        private final String tag;
+
+        RepositoryQuery(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Create all meters in the registry of the application context, if there is one.
+     *
+     * @param registry Provides the registry
+     */
+    @Autowired
+    public PreferenceMetrics(ObjectProvider<MeterRegistry> registry) {
+        this(registryOrEmpty(registry.getIfAvailable()));
+    }
+
+    /**
+     * Create all meters in the given {@code registry}.
+     *
+     * @param registry The registry
+     */
+    public PreferenceMetrics(MeterRegistry registry) {
+        serviceTimers = new Timer[ServiceOperation.values().length][SCOPES.length + 1];
+        for (ServiceOperation operation : ServiceOperation.values()) {
+            for (int i = 0; i <= SCOPES.length; i++) {
+                serviceTimers[operation.ordinal()][i] = Timer.builder("preferences.service")
+                        .description("Calls of the ConfigurationService")
+                        .tags("operation", operation.tag, "scope", scopeTag(i))
+                        .register(registry);
+            }
+        }
+        queryTimers = new Timer[RepositoryQuery.values().length][SCOPES.length + 1];
+        for (RepositoryQuery query : RepositoryQuery.values()) {
+            for (int i = 0; i <= SCOPES.length; i++) {
+                queryTimers[query.ordinal()][i] = Timer.builder("preferences.repository")
+                        .description("Queries executed by the preference repository")
+                        .tags("query", query.tag, "scope", scopeTag(i))
+                        .register(registry);
+            }
+        }
+        fileLoadTimer = Timer.builder("preferences.file.load")
+                .description("Loading the preferences file")
+                .register(registry);
+        fileLoadedCounters = new Counter[SCOPES.length];
+        for (PropertyScope scope : SCOPES) {
+            fileLoadedCounters[scope.ordinal()] = Counter.builder("preferences.file.loaded")
+                    .description("Preferences loaded from the preferences file")
+                    .tags("scope", scope.name())
+                    .register(registry);
+        }
+    }
+
+    private static MeterRegistry registryOrEmpty(MeterRegistry registry) {
+        return registry == null ? new CompositeMeterRegistry() : registry;
+    }
+
+    private static String scopeTag(int index) {
+        return index == 0 ? ANY_SCOPE : SCOPES[index - 1].name();
+    }
+
+    private static int indexOf(PropertyScope scope) {
+        return scope == null ? 0 : scope.ordinal() + 1;
+    }
+
+    /**
+     * Return the timer of a service {@code operation}.
+     *
+     * @param operation The operation
+     * @param scope The scope or {@literal null} if the operation is not bound to a scope
+     * @return The timer
+     */
+    public Timer service(ServiceOperation operation, PropertyScope scope) {
+        return serviceTimers[operation.ordinal()][indexOf(scope)];
+    }
+
+    /**
+     * Return the timer of a repository {@code query}.
+     *
+     * @param query The query
+     * @param scope The scope or {@literal null} if the query is not bound to a scope
+     * @return The timer
+     */
+    public Timer query(RepositoryQuery query, PropertyScope scope) {
+        return queryTimers[query.ordinal()][indexOf(scope)];
+    }
+
+    /**
+     * Return the timer of loading the preferences file.
+     *
+     * @return The timer
+     */
+    public Timer fileLoad() {
+        return fileLoadTimer;
+    }
+
+    /**
+     * Return the counter of preferences of a {@code scope} loaded from the preferences file.
+     *
+     * @param scope The scope
+     * @return The counter
+     */
+    public Counter fileLoaded(PropertyScope scope) {
+        return fileLoadedCounters[scope.ordinal()];
+    }
+}
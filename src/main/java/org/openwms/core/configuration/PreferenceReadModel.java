@@ -0,0 +1,150 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * A PreferenceReadModel keeps the denormalized {@link FlatPreference} table in sync with the preference entities. Write methods have to be
+ * called within the transaction of the write operation on the preference itself.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see FlatPreference
+ * @since 2.0
+ */
+@Component
+class PreferenceReadModel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreferenceReadModel.class);
+    @Autowired
+    private FlatPreferenceRepository flatPreferenceRepository;
+    @Autowired
+    private PreferenceRepository preferenceRepository;
+
+    /**
+     * Create or update the read model of the persisted {@code preference}.
+     *
+     * @param preference The saved preference
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void save(AbstractPreference preference) {
+        flatPreferenceRepository.save(new FlatPreference(preference));
+    }
+
+    /**
+     * Set the String value of a preference in the read model, as it has been done on the preference itself with a bulk update.
+     *
+     * @param scope The scope of the preference
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key of the preference
+     * @param value The new value
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void updateValue(PropertyScope scope, String owner, String key, String value) {
+        flatPreferenceRepository.updateValue(scope, owner, key, value);
+    }
+
+    /**
+     * Set the float value of a preference in the read model, as it has been done on the preference itself with a bulk update.
+     *
+     * @param scope The scope of the preference
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key of the preference
+     * @param floatValue The new value
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void updateFloatValue(PropertyScope scope, String owner, String key, Float floatValue) {
+        flatPreferenceRepository.updateFloatValue(scope, owner, key, floatValue);
+    }
+
+    /**
+     * Set the String value and the float value of a preference in the read model, as it has been done on the preference itself with one
+     * bulk update.
+     *
+     * @param scope The scope of the preference
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key of the preference
+     * @param value The new String value
+     * @param floatValue The new float value
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void updateValues(PropertyScope scope, String owner, String key, String value, Float floatValue) {
+        flatPreferenceRepository.updateValues(scope, owner, key, value, floatValue);
+    }
+
+    /**
+     * Delete the read model of the {@code preference}.
+     *
+     * @param preference The deleted preference
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void delete(AbstractPreference preference) {
+        if (preference.getId() != null) {
+            flatPreferenceRepository.deleteByPreferenceId(preference.getId());
+        }
+    }
+
+    /**
+     * Rebuild the read model on startup if it is not in sync with the preference tables, e.g. when preferences have been written before
+     * the read model existed or an update of the read model got lost. The number of entries, the sum of their versions and the highest
+     * identifier are compared per scope, so stale values are detected as well, because each change increments the version.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfOutOfSync() {
+        Map<PropertyScope, PreferenceChecksum> expected = preferenceRepository.checksums();
+        Map<PropertyScope, PreferenceChecksum> actual = new EnumMap<>(PropertyScope.class);
+        for (Object[] row : flatPreferenceRepository.findChecksums()) {
+            actual.put((PropertyScope) row[0], PreferenceChecksum.of((Number) row[1], (Number) row[2], (Number) row[3]));
+        }
+        boolean inSync = true;
+        for (Map.Entry<PropertyScope, PreferenceChecksum> entry : expected.entrySet()) {
+            if (!entry.getValue().equals(actual.getOrDefault(entry.getKey(), PreferenceChecksum.EMPTY))) {
+                LOGGER.info("Read model of [{}] preferences is out of sync, expected [{}] but was [{}]", entry.getKey(), entry.getValue(),
+                        actual.get(entry.getKey()));
+                inSync = false;
+            }
+        }
+        if (inSync) {
+            return;
+        }
+        LOGGER.info("Rebuilding the read model of preferences");
+        flatPreferenceRepository.deleteAllInBatch();
+        List<AbstractPreference> all = preferenceRepository.findAllPreferences();
+        for (AbstractPreference preference : all) {
+            flatPreferenceRepository.save(new FlatPreference(preference));
+        }
+    }
+}
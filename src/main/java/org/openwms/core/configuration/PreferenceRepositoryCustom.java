@@ -21,7 +21,10 @@
  */
 package org.openwms.core.configuration;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import org.openwms.core.configuration.file.AbstractPreference;
 
@@ -44,6 +47,17 @@ interface PreferenceRepositoryCustom {
      */
     <T extends AbstractPreference> List<T> findByType(Class<T> clazz, String owner);
 
+    /**
+     * Find and return all preferences that are of the given {@code clazz} type and owned by one of the {@code owners}. Large collections of
+     * owners are split into several queries, each with a limited IN-list.
+     *
+     * @param clazz A subclass of {@link AbstractPreference} to search for, must be a type of preference that has an owner
+     * @param owners The owners
+     * @param <T> Any type of {@link AbstractPreference}
+     * @return A list of all preferences or an empty list, never {@literal null}
+     */
+    <T extends AbstractPreference> List<T> findByType(Class<T> clazz, Collection<String> owners);
+
     /**
      * Find and return all preferences that are of the given {@code clazz} type.
      *
@@ -52,4 +66,75 @@ interface PreferenceRepositoryCustom {
      * @return A list of all preferences or an empty list, never {@literal null}
      */
     <T extends AbstractPreference> List<T> findByType(Class<T> clazz);
+
+    /**
+     * Find the preference of the given {@code clazz} type by its natural key.
+     *
+     * @param clazz A subclass of {@link AbstractPreference} to search for
+     * @param owner The owner, ignored for types of preferences without an owner
+     * @param key The key of the preference
+     * @param <T> Any type of {@link AbstractPreference}
+     * @return The preference
+     */
+    <T extends AbstractPreference> Optional<T> findByKey(Class<T> clazz, String owner, String key);
+
+    /**
+     * Set one attribute of the preference with the given natural key with a single bulk update statement and increment its version. The
+     * preference is not loaded, hence no entity listeners are called.
+     *
+     * @param clazz A subclass of {@link AbstractPreference}
+     * @param owner The owner, ignored for types of preferences without an owner
+     * @param key The key of the preference
+     * @param attribute The name of the attribute to set, either {@code value} or {@code floatValue}
+     * @param value The new value
+     * @param <T> Any type of {@link AbstractPreference}
+     * @return The number of updated preferences
+     */
+    <T extends AbstractPreference> int updateByKey(Class<T> clazz, String owner, String key, String attribute, Object value);
+
+    /**
+     * Set several attributes of the preference with the given natural key with a single bulk update statement and increment its version
+     * once. The preference is not loaded, hence no entity listeners are called.
+     *
+     * @param clazz A subclass of {@link AbstractPreference}
+     * @param owner The owner, ignored for types of preferences without an owner
+     * @param key The key of the preference
+     * @param attributes The new values by name of the attribute, either {@code value} or {@code floatValue}
+     * @param <T> Any type of {@link AbstractPreference}
+     * @return The number of updated preferences
+     */
+    <T extends AbstractPreference> int updateByKey(Class<T> clazz, String owner, String key, Map<String, ?> attributes);
+
+    /**
+     * Persist a new or merge a detached {@code preference} and flush the change immediately. Use this instead of the generic save methods,
+     * because preferences may be stored in a shard.
+     *
+     * @param preference The preference to store
+     * @param <T> Any type of {@link AbstractPreference}
+     * @return The stored instance
+     */
+    <T extends AbstractPreference> T store(T preference);
+
+    /**
+     * Remove the {@code preference}. Use this instead of the generic delete methods, because preferences may be stored in a shard.
+     *
+     * @param preference The preference to remove
+     */
+    void remove(AbstractPreference preference);
+
+    /**
+     * Find and return all preferences of all types. Use this instead of the generic find methods, because preferences may be stored in
+     * a shard.
+     *
+     * @return A list of all preferences or an empty list, never {@literal null}
+     */
+    List<AbstractPreference> findAllPreferences();
+
+    /**
+     * Calculate a checksum of the preferences of each scope. Use this instead of generic aggregate queries, because preferences may be
+     * stored in a shard.
+     *
+     * @return A checksum for each scope
+     */
+    Map<PropertyScope, PreferenceChecksum> checksums();
 }
@@ -23,12 +23,33 @@ package org.openwms.core.configuration;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.Table;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.SQLQuery;
+import org.hibernate.type.FloatType;
+import org.hibernate.type.StringType;
+import org.hibernate.type.Type;
 import org.openwms.core.AbstractEntity;
+import org.openwms.core.configuration.PreferenceMetrics.RepositoryQuery;
 import org.openwms.core.configuration.file.AbstractPreference;
+import org.openwms.core.configuration.file.ApplicationPreference;
 import org.openwms.core.configuration.file.Preferences;
+import org.openwms.core.configuration.file.RolePreference;
+import org.openwms.core.configuration.file.UserPreference;
 import org.openwms.core.exception.WrongClassTypeException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -36,7 +57,8 @@ import org.springframework.transaction.annotation.Transactional;
 /**
  * A PreferenceRepositoryImpl implements custom generic find methods of {@link PreferenceRepositoryCustom}.
  * <p>
- * All methods have to be invoked within an active transaction context.
+ * All methods have to be invoked within an active transaction context. {@link UserPreference}s and {@link RolePreference}s are read from
+ * and written to the shard of their owner if {@link PreferenceShards sharding} is configured.
  * </p>
  * 
  * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
@@ -47,16 +69,32 @@ import org.springframework.transaction.annotation.Transactional;
 @Repository
 class PreferenceRepositoryImpl implements PreferenceRepositoryCustom {
 
+    /** Maximum number of elements in one IN-list, below the limit of common databases. */
+    static final int IN_LIST_CHUNK_SIZE = 500;
+    private static final String SELECT_ALL = "select p from AbstractPreference p";
+    private static final String CHECKSUM = "select count(p), sum(p.ol), max(p.id) from %s p";
+
     @PersistenceContext
     private EntityManager em;
+    @Autowired(required = false)
+    private PreferenceMetrics metrics = PreferenceMetrics.NOOP;
+    @Autowired(required = false)
+    private PreferenceShards shards = PreferenceShards.NONE;
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Sharded types are read from all shards in parallel.
      */
     @Override
     @SuppressWarnings("unchecked")
     public <T extends AbstractPreference> List<T> findByType(Class<T> clazz) {
-        return (List<T>) em.createNamedQuery(getQueryName(clazz) + AbstractEntity.FIND_ALL).getResultList();
+        Timer timer = metrics.query(RepositoryQuery.FIND_ALL, Preferences.scopeOf(clazz));
+        String queryName = getQueryName(clazz) + AbstractEntity.FIND_ALL;
+        if (shards.isSharded(clazz)) {
+            return shards.fanOut(shard -> timer.record(() -> (List<T>) shard.createNamedQuery(queryName).getResultList()));
+        }
+        return (List<T>) timer.record(em.createNamedQuery(queryName)::getResultList);
     }
 
     /**
@@ -65,8 +103,182 @@ class PreferenceRepositoryImpl implements PreferenceRepositoryCustom {
     @Override
     @SuppressWarnings("unchecked")
     public <T extends AbstractPreference> List<T> findByType(Class<T> clazz, String owner) {
-        return (List<T>) em.createNamedQuery(getQueryName(clazz) + AbstractPreference.FIND_BY_OWNER)
-                .setParameter("owner", owner).getResultList();
+        String queryName = getQueryName(clazz) + AbstractPreference.FIND_BY_OWNER;
+        return on(clazz, owner, manager -> {
+            Query query = manager.createNamedQuery(queryName).setParameter("owner", owner);
+            return (List<T>) metrics.query(RepositoryQuery.FIND_BY_OWNER, Preferences.scopeOf(clazz)).record(query::getResultList);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * For sharded types the owners are grouped by shard and each shard is queried for its owners only.
+     */
+    @Override
+    public <T extends AbstractPreference> List<T> findByType(Class<T> clazz, Collection<String> owners) {
+        if (ApplicationPreference.class.equals(clazz)) {
+            throw new WrongClassTypeException("Type " + clazz + " does not have an owner");
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(owners));
+        if (!shards.isSharded(clazz)) {
+            return findByOwners(em, clazz, distinct);
+        }
+        List<T> result = new ArrayList<>();
+        for (Map.Entry<Integer, List<String>> partition : shards.partition(distinct).entrySet()) {
+            result.addAll(shards.execute(partition.getKey(), shard -> findByOwners(shard, clazz, partition.getValue())));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends AbstractPreference> List<T> findByOwners(EntityManager manager, Class<T> clazz, List<String> owners) {
+        String queryName = getQueryName(clazz) + AbstractPreference.FIND_BY_OWNERS;
+        Timer timer = metrics.query(RepositoryQuery.FIND_BY_OWNERS, Preferences.scopeOf(clazz));
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < owners.size(); i += IN_LIST_CHUNK_SIZE) {
+            Query query = manager.createNamedQuery(queryName).setParameter("owners",
+                    owners.subList(i, Math.min(i + IN_LIST_CHUNK_SIZE, owners.size())));
+            result.addAll(timer.record(query::getResultList));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends AbstractPreference> Optional<T> findByKey(Class<T> clazz, String owner, String key) {
+        String queryName = getQueryName(clazz) + AbstractPreference.FIND_BY_KEY;
+        List<T> result = on(clazz, owner, manager -> {
+            Query query = manager.createNamedQuery(queryName).setParameter("key", key);
+            if (!ApplicationPreference.class.equals(clazz)) {
+                query.setParameter("owner", owner);
+            }
+            return (List<T>) metrics.query(RepositoryQuery.FIND_BY_KEY, Preferences.scopeOf(clazz)).record(query::getResultList);
+        });
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends AbstractPreference> int updateByKey(Class<T> clazz, String owner, String key, String attribute, Object value) {
+        return updateByKey(clazz, owner, key, Collections.singletonMap(attribute, value));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Executed as one native UPDATE on the root table, that selects the row by a sub-query on the table of the {@code clazz}. A JPQL bulk
+     * update of a JOINED hierarchy is not used, because Hibernate executes it with an additional temporary table. The query is synchronized
+     * with the {@code clazz}, so Hibernate still evicts the affected cache regions.
+     */
+    @Override
+    public <T extends AbstractPreference> int updateByKey(Class<T> clazz, String owner, String key, Map<String, ?> attributes) {
+        Map<UpdatableAttribute, Object> values = new EnumMap<>(UpdatableAttribute.class);
+        attributes.forEach((attribute, value) -> values.put(UpdatableAttribute.of(attribute), value));
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("At least one attribute must be updated");
+        }
+        StringBuilder sql = new StringBuilder("update ").append(tableOf(AbstractPreference.class)).append(" set ");
+        values.keySet().forEach(updatable -> sql.append(updatable.column).append(" = :").append(updatable.attribute).append(", "));
+        boolean owned = !ApplicationPreference.class.equals(clazz);
+        sql.append("C_OL = C_OL + 1 where id in (select x.id from ").append(tableOf(clazz)).append(" x where x.C_KEY = :key")
+                .append(owned ? " and x.C_OWNER = :owner)" : ")");
+        return on(clazz, owner, manager -> {
+            SQLQuery query = manager.createNativeQuery(sql.toString()).unwrap(SQLQuery.class);
+            query.addSynchronizedEntityClass(clazz);
+            values.forEach((updatable, value) -> query.setParameter(updatable.attribute, value, updatable.type));
+            query.setParameter("key", key);
+            if (owned) {
+                query.setParameter("owner", owner);
+            }
+            return metrics.query(RepositoryQuery.UPDATE_BY_KEY, Preferences.scopeOf(clazz)).record(query::executeUpdate);
+        });
+    }
+
+    private static String tableOf(Class<?> clazz) {
+        Table table = clazz.getAnnotation(Table.class);
+        if (table == null) {
+            throw new WrongClassTypeException("Type " + clazz + " not a valid Preferences type");
+        }
+        return table.name();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends AbstractPreference> T store(T preference) {
+        return on(preference.getClass(), preference.getOwner(), manager -> {
+            T stored = preference;
+            if (preference.getId() == null) {
+                manager.persist(preference);
+            } else {
+                stored = manager.merge(preference);
+            }
+            manager.flush();
+            return stored;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(AbstractPreference preference) {
+        on(preference.getClass(), preference.getOwner(), manager -> {
+            manager.remove(manager.contains(preference) ? preference : manager.merge(preference));
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The shards are read in parallel to the primary database.
+     */
+    @Override
+    public List<AbstractPreference> findAllPreferences() {
+        Timer timer = metrics.query(RepositoryQuery.FIND_ALL, null);
+        CompletableFuture<List<AbstractPreference>> sharded =
+                shards.fanOutAsync(shard -> timer.record(shard.createQuery(SELECT_ALL, AbstractPreference.class)::getResultList));
+        List<AbstractPreference> result = new ArrayList<>(
+                timer.record(em.createQuery(SELECT_ALL, AbstractPreference.class)::getResultList));
+        result.addAll(PreferenceShards.join(sharded));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * One aggregate query per type of preference, sharded types are aggregated on each shard and combined.
+     */
+    @Override
+    public Map<PropertyScope, PreferenceChecksum> checksums() {
+        Map<PropertyScope, PreferenceChecksum> result = new EnumMap<>(PropertyScope.class);
+        for (Class<?> type : Preferences.TYPES) {
+            String jpql = String.format(CHECKSUM, type.getSimpleName());
+            PreferenceChecksum checksum = checksumOf(em.createQuery(jpql, Object[].class).getSingleResult());
+            if (shards.isSharded(type)) {
+                for (Object[] row : shards.fanOut(shard -> shard.createQuery(jpql, Object[].class).getResultList())) {
+                    checksum = checksum.plus(checksumOf(row));
+                }
+            }
+            result.put(Preferences.scopeOf(type), checksum);
+        }
+        return result;
+    }
+
+    private static PreferenceChecksum checksumOf(Object[] row) {
+        return PreferenceChecksum.of((Number) row[0], (Number) row[1], (Number) row[2]);
+    }
+
+    private <R> R on(Class<?> clazz, String owner, Function<EntityManager, R> work) {
+        return shards.isSharded(clazz) ? shards.execute(shards.shardOf(owner), work) : work.apply(em);
     }
 
     private <T extends AbstractPreference> String getQueryName(Class<T> clazz) {
@@ -77,4 +289,33 @@ class PreferenceRepositoryImpl implements PreferenceRepositoryCustom {
         }
         throw new WrongClassTypeException("Type " + clazz + " not a valid Preferences type");
     }
+
+    /**
+     * Attributes that can be set with {@link #updateByKey(Class, String, String, Map)}, with their column and the type to bind values,
+     * including {@literal null}.
+     */
+    private enum UpdatableAttribute {
+
+        VALUE("value", "C_VALUE", StringType.INSTANCE),
+        FLOAT_VALUE("floatValue", "C_FLOAT_VALUE", FloatType.INSTANCE);
+
+        private final String attribute;
+        private final String column;
+        private final Type type;
+
+        UpdatableAttribute(String attribute, String column, Type type) {
+            this.attribute = attribute;
+            this.column = column;
+            this.type = type;
+        }
+
+        private static UpdatableAttribute of(String attribute) {
+            for (UpdatableAttribute updatable : values()) {
+                if (updatable.attribute.equals(attribute)) {
+                    return updatable;
+                }
+            }
+            throw new IllegalArgumentException("Attribute " + attribute + " can not be updated");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,302 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import org.openwms.core.app.ModuleProperties;
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.openwms.core.configuration.file.RolePreference;
+import org.openwms.core.configuration.file.UserPreference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A PreferenceShards distributes {@link UserPreference}s and {@link RolePreference}s to the databases configured as
+ * <i>openwms.core.config.shards</i> by a stable hash of the owner, all other preferences, the read model and the change log stay in the
+ * primary database. Without any shard configured all preferences are stored in the primary database.
+ * <p>
+ * Each shard has its own {@link EntityManagerFactory} without second-level cache. Work on a shard joins the current transaction of the
+ * primary database: the shard transaction is committed right before the primary one and rolled back with it. This is a best effort
+ * coordination, not a distributed transaction, a failure of the primary commit after the shard has committed is not compensated.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see ShardSequenceGenerator
+ * @since 2.0
+ */
+@Component
+class PreferenceShards {
+
+    /** Used when no shards are configured or the component is not available at all. */
+    static final PreferenceShards NONE = new PreferenceShards();
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreferenceShards.class);
+    private final List<Shard> shards = new ArrayList<>();
+    @Autowired
+    private ModuleProperties props;
+    @Autowired
+    private EntityManagerFactoryBuilder entityManagerFactoryBuilder;
+    @Autowired
+    private JpaProperties jpaProperties;
+    @Autowired
+    @Qualifier("preferencesShardExecutor")
+    private TaskExecutor executor;
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < props.getShards().size(); i++) {
+            ModuleProperties.Shard config = props.getShards().get(i);
+            DataSource dataSource = DataSourceBuilder.create()
+                    .url(config.getUrl())
+                    .username(config.getUsername())
+                    .password(config.getPassword())
+                    .build();
+            Map<String, Object> properties = new TreeMap<>(jpaProperties.getHibernateProperties(dataSource));
+            properties.put("hibernate.id.new_generator_mappings", "true");
+            properties.put("hibernate.ejb.identifier_generator_strategy_provider", ShardSequenceGenerator.Provider.class.getName());
+            properties.put(ShardSequenceGenerator.SHARD_INDEX, String.valueOf(i));
+            properties.put("hibernate.cache.use_second_level_cache", "false");
+            properties.put("hibernate.cache.use_query_cache", "false");
+            properties.put("javax.persistence.sharedCache.mode", "NONE");
+            LocalContainerEntityManagerFactoryBean factoryBean = entityManagerFactoryBuilder
+                    .dataSource(dataSource)
+                    .packages(AbstractPreference.class)
+                    .persistenceUnit("preferences-shard-" + i)
+                    .properties(properties)
+                    .build();
+            factoryBean.afterPropertiesSet();
+            shards.add(new Shard(dataSource, factoryBean.getObject()));
+            LOGGER.info("Preferences shard [{}] connected to [{}]", i, config.getUrl());
+        }
+    }
+
+    @PreDestroy
+    void destroy() {
+        for (Shard shard : shards) {
+            shard.entityManagerFactory.close();
+            if (shard.dataSource instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) shard.dataSource).close();
+                } catch (Exception e) {
+                    LOGGER.warn("Could not close the datasource of a preferences shard: {}", e.getMessage());
+                }
+            }
+        }
+        shards.clear();
+    }
+
+    /**
+     * Check whether preferences of the given {@code type} are stored in shards.
+     *
+     * @param type The type of preference
+     * @return {@literal true} if so
+     */
+    boolean isSharded(Class<?> type) {
+        return !shards.isEmpty() && (UserPreference.class.isAssignableFrom(type) || RolePreference.class.isAssignableFrom(type));
+    }
+
+    /**
+     * Return the index of the shard the preferences of an {@code owner} are stored in. {@link String#hashCode()} is specified by the
+     * language and therefore stable across JVMs and restarts.
+     *
+     * @param owner The owner
+     * @return The index of the shard
+     */
+    int shardOf(String owner) {
+        return Math.floorMod(owner == null ? 0 : owner.hashCode(), shards.size());
+    }
+
+    /**
+     * Return the number of shards.
+     *
+     * @return The number, 0 if sharding is off
+     */
+    int size() {
+        return shards.size();
+    }
+
+    /**
+     * Group the {@code owners} by the shard their preferences are stored in.
+     *
+     * @param owners The owners
+     * @return A map of shard index to owners, ordered by the shard index
+     */
+    Map<Integer, List<String>> partition(Collection<String> owners) {
+        Map<Integer, List<String>> result = new TreeMap<>();
+        for (String owner : owners) {
+            result.computeIfAbsent(shardOf(owner), k -> new ArrayList<>()).add(owner);
+        }
+        return result;
+    }
+
+    /**
+     * Execute {@code work} on the shard with the given {@code index}. If a transaction is active on the current thread, the work joins it,
+     * otherwise it runs in a transaction of its own.
+     *
+     * @param index The index of the shard
+     * @param work The work to execute with the shared EntityManager of the shard
+     * @param <R> Type of the result
+     * @return The result of the work
+     */
+    <R> R execute(int index, Function<EntityManager, R> work) {
+        Shard shard = shards.get(index);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return shard.transactionTemplate.execute(status -> work.apply(shard.entityManager));
+        }
+        if (!TransactionSynchronizationManager.hasResource(shard.entityManagerFactory)) {
+            TransactionStatus status = shard.transactionManager.getTransaction(new DefaultTransactionDefinition());
+            TransactionSynchronizationManager.registerSynchronization(new ShardSynchronization(shard.transactionManager, status));
+        }
+        return work.apply(shard.entityManager);
+    }
+
+    /**
+     * Execute {@code work} on all shards in parallel, each in a read-only transaction of its own. Uncommitted changes of the current
+     * transaction are not visible to the work.
+     *
+     * @param work The work to execute with the shared EntityManager of a shard
+     * @param <R> Type of the result elements
+     * @return The concatenated results of all shards
+     */
+    <R> List<R> fanOut(Function<EntityManager, List<R>> work) {
+        return join(fanOutAsync(work));
+    }
+
+    /**
+     * Start {@code work} on all shards in parallel and return without waiting for the results, see {@link #fanOut(Function)}.
+     *
+     * @param work The work to execute with the shared EntityManager of a shard
+     * @param <R> Type of the result elements
+     * @return Completes with the concatenated results of all shards
+     */
+    <R> CompletableFuture<List<R>> fanOutAsync(Function<EntityManager, List<R>> work) {
+        List<CompletableFuture<List<R>>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> shard.readOnlyTemplate.execute(status -> work.apply(shard.entityManager)),
+                    executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).thenApply(v -> {
+            List<R> result = new ArrayList<>();
+            futures.forEach(future -> result.addAll(future.join()));
+            return result;
+        });
+    }
+
+    /**
+     * Wait for the {@code future} and rethrow the original cause if it failed.
+     *
+     * @param future The future
+     * @param <R> Type of the result
+     * @return The result
+     */
+    static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ce) {
+            if (ce.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ce.getCause();
+            }
+            throw ce;
+        }
+    }
+
+    private static final class Shard {
+
+        private final DataSource dataSource;
+        private final EntityManagerFactory entityManagerFactory;
+        private final EntityManager entityManager;
+        private final JpaTransactionManager transactionManager;
+        private final TransactionTemplate transactionTemplate;
+        private final TransactionTemplate readOnlyTemplate;
+
+        private Shard(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+            this.dataSource = dataSource;
+            this.entityManagerFactory = entityManagerFactory;
+            this.entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+            this.transactionManager = new JpaTransactionManager(entityManagerFactory);
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+            this.readOnlyTemplate.setReadOnly(true);
+        }
+    }
+
+    /**
+     * Completes the transaction of a shard together with the transaction of the primary database.
+     */
+    private static final class ShardSynchronization extends TransactionSynchronizationAdapter {
+
+        private final JpaTransactionManager transactionManager;
+        private final TransactionStatus status;
+
+        private ShardSynchronization(JpaTransactionManager transactionManager, TransactionStatus status) {
+            this.transactionManager = transactionManager;
+            this.status = status;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Commit the shard first, a failure rolls back the primary transaction.
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            transactionManager.commit(status);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void afterCompletion(int status) {
+            if (!this.status.isCompleted()) {
+                transactionManager.rollback(this.status);
+            }
+        }
+    }
+}
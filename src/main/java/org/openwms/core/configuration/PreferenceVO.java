@@ -0,0 +1,192 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.openwms.core.configuration.file.AbstractPreference;
+
+/**
+ * A PreferenceVO is an immutable, read-only representation of a preference. It is created by projection queries directly from the
+ * {@link FlatPreference} read model, hence no entity is hydrated nor tracked by a persistence context. The {@code version} is the
+ * optimistic locking version of the preference and has to be passed back on updates.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PreferenceVO implements Serializable {
+
+    private final PropertyScope type;
+    private final String owner;
+    private final String key;
+    private final String value;
+    private final Float floatValue;
+    private final int minimum;
+    private final int maximum;
+    private final String description;
+    private final long version;
+
+    /**
+     * Create a new PreferenceVO, used by the projection queries.
+     *
+     * @param type The scope
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key
+     * @param value The String value
+     * @param floatValue The float value
+     * @param minimum The minimum value
+     * @param maximum The maximum value
+     * @param description The description text
+     */
+    public PreferenceVO(PropertyScope type, String owner, String key, String value, Float floatValue, int minimum, int maximum,
+            String description) {
+        this(type, owner, key, value, floatValue, minimum, maximum, description, 0);
+    }
+
+    /**
+     * Create a new PreferenceVO with a {@code version}, used by the projection queries and to deserialize update requests.
+     *
+     * @param type The scope
+     * @param owner The owner, {@literal null} in application scope
+     * @param key The key
+     * @param value The String value
+     * @param floatValue The float value
+     * @param minimum The minimum value
+     * @param maximum The maximum value
+     * @param description The description text
+     * @param version The optimistic locking version
+     */
+    @JsonCreator
+    public PreferenceVO(@JsonProperty("type") PropertyScope type, @JsonProperty("owner") String owner, @JsonProperty("key") String key,
+            @JsonProperty("value") String value, @JsonProperty("floatValue") Float floatValue, @JsonProperty("minimum") int minimum,
+            @JsonProperty("maximum") int maximum, @JsonProperty("description") String description, @JsonProperty("version") long version) {
+        this.type = type;
+        this.owner = owner;
+        this.key = key;
+        this.value = value;
+        this.floatValue = floatValue;
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.description = description;
+        this.version = version;
+    }
+
+    /**
+     * Create a PreferenceVO from an already loaded {@code preference}.
+     *
+     * @param preference The preference
+     * @return The read-only view
+     */
+    public static PreferenceVO of(AbstractPreference preference) {
+        return new PreferenceVO(preference.getType(), preference.getOwner(), preference.getKey(), preference.getValue(),
+                preference.getFloatValue(), preference.getMinimum(), preference.getMaximum(), preference.getDescription(),
+                preference.getVersion());
+    }
+
+    public PropertyScope getType() {
+        return type;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Float getFloatValue() {
+        return floatValue;
+    }
+
+    public int getMinimum() {
+        return minimum;
+    }
+
+    public int getMaximum() {
+        return maximum;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All fields are compared.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PreferenceVO that = (PreferenceVO) o;
+        return minimum == that.minimum &&
+                version == that.version &&
+                maximum == that.maximum &&
+                type == that.type &&
+                Objects.equals(owner, that.owner) &&
+                Objects.equals(key, that.key) &&
+                Objects.equals(value, that.value) &&
+                Objects.equals(floatValue, that.floatValue) &&
+                Objects.equals(description, that.description);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All fields are used.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, owner, key, value, floatValue, minimum, maximum, description, version);
+    }
+
+    @Override
+    public String toString() {
+        return "PreferenceVO{" +
+                "type=" + type +
+                ", owner='" + owner + '\'' +
+                ", key='" + key + '\'' +
+                ", value='" + value + '\'' +
+                ", floatValue=" + floatValue +
+                ", minimum=" + minimum +
+                ", maximum=" + maximum +
+                ", description='" + description + '\'' +
+                ", version=" + version +
+                '}';
+    }
+}
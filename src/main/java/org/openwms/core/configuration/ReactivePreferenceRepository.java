@@ -0,0 +1,51 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * A ReactivePreferenceRepository reads preferences from the denormalized read model without blocking the subscribing thread. Elements are
+ * emitted on a thread of the implementation.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+interface ReactivePreferenceRepository {
+
+    /**
+     * Find all preferences.
+     *
+     * @return A Flux of all preferences
+     */
+    Flux<PreferenceVO> findAll();
+
+    /**
+     * Find all preferences of a {@link PropertyScope} and of an owner.
+     *
+     * @param type The scope of preferences to search for
+     * @param owner The owner, {@literal null} for all owners
+     * @return A Flux of the preferences
+     */
+    Flux<PreferenceVO> findByTypeAndOwner(PropertyScope type, String owner);
+}
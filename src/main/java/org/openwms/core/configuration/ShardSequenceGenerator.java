@@ -0,0 +1,88 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.jpa.spi.IdentifierGeneratorStrategyProvider;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * A ShardSequenceGenerator generates identifiers of preferences stored in a shard. Each shard draws from its own sequence, so the values
+ * are offset by the index of the shard to keep identifiers unique across the primary database and all shards. The read model and the
+ * change log rely on that.
+ * <p>
+ * Shard {@code i} generates identifiers starting at {@code (i + 1) * 2^48}, which keeps them below 2^53 and thereby exact in JSON
+ * numbers for up to 31 shards.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see PreferenceShards
+ * @since 2.0
+ */
+public class ShardSequenceGenerator extends SequenceStyleGenerator {
+
+    /** Name of the persistence unit property holding the index of the shard. */
+    public static final String SHARD_INDEX = "openwms.core.config.shard-index";
+    private static final int OFFSET_BITS = 48;
+    private long offset;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+        Object index = serviceRegistry.getService(ConfigurationService.class).getSettings().get(SHARD_INDEX);
+        offset = index == null ? 0 : (Long.parseLong(index.toString()) + 1) << OFFSET_BITS;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable generate(SessionImplementor session, Object object) {
+        return offset + ((Number) super.generate(session, object)).longValue();
+    }
+
+    /**
+     * A Provider replaces the generator Hibernate uses for {@code GenerationType.AUTO} with new generator mappings enabled.
+     */
+    public static class Provider implements IdentifierGeneratorStrategyProvider {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Map<String, Class<?>> getStrategies() {
+            return Collections.singletonMap(SequenceStyleGenerator.class.getName(), ShardSequenceGenerator.class);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A UserPreferenceCache keeps the USER and ROLE scoped preferences of logged in users in memory. An entry is loaded in background when
+ * the user logs in, subsequent reads of that user are served from memory. Entries are dropped on logout and whenever a preference of the
+ * user or of one of its roles is deleted. At most <i>openwms.core.config.prewarm-max-entries</i> users are kept at the same time, when the
+ * limit is reached the least recently used user is evicted. Users that have not been read for <i>openwms.core.config.prewarm-idle-timeout
+ * </i> milliseconds expire, e.g. when the session ended without a logout. A read waits at most <i>openwms.core.config.prewarm-wait-timeout
+ * </i> milliseconds for a prewarming in progress, afterwards it is counted as miss and the caller reads from the database.
+ * <p>
+ * Prewarming runs in background threads that are not bound to a request, so the read-your-writes guard of the replica routing does not
+ * apply. Entries are therefore loaded in a new read-write transaction, which is always served by the primary database, a user that has just
+ * changed a preference would otherwise keep the state of a lagging replica in memory.
+ * <p>
+ * A changed preference is applied to the entries of the affected users in place, by replacing the lists of preferences of a user with
+ * updated copies. An entry is only dropped if the change is older than the preference it holds, if its prewarming is still in progress or
+ * if the changed preference is not known, e.g. when it has been changed on another node.
+ * <p>
+ * Hit and miss counts are published as Micrometer meters, prefixed with {@code preferences.prewarm.}.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+class UserPreferenceCache implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserPreferenceCache.class);
+    @Autowired
+    private FlatPreferenceRepository flatPreferenceRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier("preferencesPrewarmExecutor")
+    private TaskExecutor executor;
+    @Value("${openwms.core.config.prewarm-max-entries:1000}")
+    private int maxEntries;
+    @Value("${openwms.core.config.prewarm-idle-timeout:1800000}")
+    private long idleTimeout;
+    @Value("${openwms.core.config.prewarm-wait-timeout:500}")
+    private long waitTimeout;
+    private BoundedCache<String, Entry> entries;
+    private TransactionTemplate primaryReads;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        entries = new BoundedCache<>(maxEntries, idleTimeout);
+        primaryReads = new TransactionTemplate(transactionManager);
+        primaryReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Start loading the preferences of the user with the {@code username} in background. An already existing entry of the user is
+     * replaced, if the limit of users is reached the least recently used entry is evicted.
+     *
+     * @param username The name of the user
+     * @param roles The names of all roles the user is assigned to
+     */
+    void prewarm(String username, Collection<String> roles) {
+        requested.incrementAndGet();
+        if (maxEntries <= 0) {
+            rejected.incrementAndGet();
+            return;
+        }
+        Entry entry = new Entry(username, roles);
+        entries.put(username, entry);
+        try {
+            executor.execute(() -> entry.load(flatPreferenceRepository, primaryReads));
+        } catch (TaskRejectedException tre) {
+            rejected.incrementAndGet();
+            entries.remove(username, entry);
+            LOGGER.debug("Prewarming preferences of [{}] rejected: {}", username, tre.getMessage());
+        }
+    }
+
+    /**
+     * Drop the entry of the user with the {@code username}, e.g. on logout.
+     *
+     * @param username The name of the user
+     */
+    void evict(String username) {
+        entries.remove(username);
+    }
+
+    /**
+     * Return the USER scoped preferences of the user with the {@code username}, if the user has been prewarmed. Waits a limited time for a
+     * prewarming that is still in progress.
+     *
+     * @param username The name of the user
+     * @return The preferences or {@literal null} if the user has not been prewarmed or prewarming is not finished in time
+     */
+    List<PreferenceVO> getUserPreferences(String username) {
+        PrewarmedPreferences prewarmed = get(username);
+        return prewarmed == null ? null : prewarmed.user;
+    }
+
+    /**
+     * Return the USER and ROLE scoped preferences of the user with the {@code username}, if the user has been prewarmed. Waits a
+     * limited time for a prewarming that is still in progress.
+     *
+     * @param username The name of the user
+     * @return The preferences or {@literal null} if the user has not been prewarmed or prewarming is not finished in time
+     */
+    List<PreferenceVO> getAllPreferences(String username) {
+        PrewarmedPreferences prewarmed = get(username);
+        return prewarmed == null ? null : prewarmed.all;
+    }
+
+    /**
+     * Apply the changed {@code preference} to all entries it belongs to. If a transaction is active, it is applied after commit, so that a
+     * concurrent prewarming can not pick up the old state.
+     *
+     * @param preference The preference as it has been written
+     */
+    void update(PreferenceVO preference) {
+        afterCommit(() -> doUpdate(preference));
+    }
+
+    /**
+     * Drop all entries affected by a change of the {@code preference}, e.g. when it has been deleted. If a transaction is active, entries
+     * are dropped after commit, so that a concurrent prewarming can not pick up the old state.
+     *
+     * @param preference The changed preference
+     */
+    void invalidate(AbstractPreference preference) {
+        invalidate(preference.getType(), preference.getOwner());
+    }
+
+    /**
+     * Drop all entries affected by a change of a preference with the given {@code scope} and {@code owner}.
+     *
+     * @param scope The scope of the changed preference
+     * @param owner The owner of the changed preference
+     * @see #invalidate(AbstractPreference)
+     */
+    void invalidate(PropertyScope scope, String owner) {
+        afterCommit(() -> doInvalidate(scope, owner));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void doUpdate(PreferenceVO preference) {
+        switch (preference.getType()) {
+            case USER:
+                Entry entry = entries.peek(preference.getOwner());
+                if (entry != null && !entry.apply(preference)) {
+                    entries.remove(preference.getOwner(), entry);
+                }
+                break;
+            case ROLE:
+                entries.removeIf(e -> e.roles.contains(preference.getOwner()) && !e.apply(preference));
+                break;
+            default:
+        }
+    }
+
+    private void doInvalidate(PropertyScope scope, String owner) {
+        switch (scope) {
+            case USER:
+                entries.remove(owner);
+                break;
+            case ROLE:
+                entries.removeIf(e -> e.roles.contains(owner));
+                break;
+            default:
+        }
+    }
+
+    private PrewarmedPreferences get(String username) {
+        Entry entry = username == null ? null : entries.get(username);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            entry.future.get(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException te) {
+            LOGGER.debug("Prewarming preferences of [{}] still in progress, reading from the database", username);
+            misses.incrementAndGet();
+            return null;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            misses.incrementAndGet();
+            return null;
+        } catch (ExecutionException ee) {
+            entries.remove(username, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        PrewarmedPreferences prewarmed = entry.current.get();
+        if (prewarmed == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return prewarmed;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Number of prewarm requests, rejected requests, evicted entries, hits and misses and the current number of entries.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("preferences.prewarm.requested", requested, AtomicLong::get)
+                .description("Requests to prewarm the preferences of a user")
+                .register(registry);
+        FunctionCounter.builder("preferences.prewarm.rejected", rejected, AtomicLong::get)
+                .description("Requests to prewarm that have been rejected")
+                .register(registry);
+        FunctionCounter.builder("preferences.prewarm.evicted", this, c -> c.entries.getEvictions())
+                .description("Users evicted because the cache was full or they expired")
+                .register(registry);
+        FunctionCounter.builder("preferences.prewarm.hit", hits, AtomicLong::get)
+                .description("Reads served from prewarmed preferences")
+                .register(registry);
+        FunctionCounter.builder("preferences.prewarm.miss", misses, AtomicLong::get)
+                .description("Reads of users that have not been prewarmed in time")
+                .register(registry);
+        Gauge.builder("preferences.prewarm.size", this, c -> c.entries.size())
+                .description("Users currently kept in memory")
+                .register(registry);
+    }
+
+    private static final class Entry {
+
+        private final String username;
+        private final Set<String> roles;
+        private final CompletableFuture<PrewarmedPreferences> future = new CompletableFuture<>();
+        private final AtomicReference<PrewarmedPreferences> current = new AtomicReference<>();
+
+        private Entry(String username, Collection<String> roles) {
+            this.username = username;
+            this.roles = roles == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(roles));
+        }
+
+        private void load(FlatPreferenceRepository repository, TransactionTemplate template) {
+            try {
+                PrewarmedPreferences loaded = template.execute(status -> {
+                    List<PreferenceVO> user = repository.findVOsByTypeAndOwner(PropertyScope.USER, username);
+                    List<PreferenceVO> role = roles.isEmpty() ? Collections.emptyList() :
+                            repository.findVOsByTypeAndOwners(PropertyScope.ROLE, roles);
+                    return new PrewarmedPreferences(user, role);
+                });
+                current.set(loaded);
+                future.complete(loaded);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Prewarming preferences of [{}] failed: {}", username, ex.getMessage());
+                future.completeExceptionally(ex);
+            }
+        }
+
+        /**
+         * Replace the preferences of this entry with copies that contain the changed {@code preference}.
+         *
+         * @return {@literal false} if the change could not be applied and the entry has to be dropped
+         */
+        private boolean apply(PreferenceVO preference) {
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                return false;
+            }
+            return current.updateAndGet(prewarmed -> prewarmed == null ? null : prewarmed.with(preference)) != null;
+        }
+    }
+
+    private static final class PrewarmedPreferences {
+
+        private final List<PreferenceVO> user;
+        private final List<PreferenceVO> role;
+        private final List<PreferenceVO> all;
+
+        private PrewarmedPreferences(List<PreferenceVO> user, List<PreferenceVO> role) {
+            this.user = Collections.unmodifiableList(new ArrayList<>(user));
+            this.role = Collections.unmodifiableList(new ArrayList<>(role));
+            List<PreferenceVO> combined = new ArrayList<>(user.size() + role.size());
+            combined.addAll(user);
+            combined.addAll(role);
+            this.all = Collections.unmodifiableList(combined);
+        }
+
+        /**
+         * Return a copy with the changed {@code preference}, that either replaces the preference with the same key or is added.
+         *
+         * @return The copy or {@literal null} if the held preference is newer than the change
+         */
+        private PrewarmedPreferences with(PreferenceVO preference) {
+            List<PreferenceVO> source = preference.getType() == PropertyScope.USER ? user : role;
+            List<PreferenceVO> changed = new ArrayList<>(source.size() + 1);
+            boolean replaced = false;
+            for (PreferenceVO existing : source) {
+                if (existing.getType() == preference.getType() && Objects.equals(existing.getOwner(), preference.getOwner())
+                        && existing.getKey().equals(preference.getKey())) {
+                    if (existing.getVersion() > preference.getVersion()) {
+                        return null;
+                    }
+                    changed.add(preference);
+                    replaced = true;
+                } else {
+                    changed.add(existing);
+                }
+            }
+            if (!replaced) {
+                changed.add(preference);
+            }
+            return preference.getType() == PropertyScope.USER ? new PrewarmedPreferences(changed, role) :
+                    new PrewarmedPreferences(user, changed);
+        }
+    }
+}
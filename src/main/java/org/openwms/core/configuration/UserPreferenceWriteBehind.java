@@ -0,0 +1,414 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+import org.ameba.exception.NotFoundException;
+import org.openwms.core.configuration.file.PreferenceKey;
+import org.openwms.core.configuration.file.UserPreference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * An UserPreferenceWriteBehind buffers changes of USER scoped preference values in memory and writes them in batches. Changes of the same
+ * preference are coalesced, the last write wins, so the number of database writes depends on the number of distinct preferences changed
+ * and not on the number of changes.
+ * <p>
+ * Write-behind is enabled with <i>openwms.core.config.write-behind</i>. The buffer is flushed every
+ * <i>openwms.core.config.write-behind-interval</i> milliseconds, when it holds <i>openwms.core.config.write-behind-max-size</i>
+ * preferences and finally on shutdown. All changes are flushed in one transaction, if that fails each change is written in its own
+ * transaction, so that one failing change does not hold back the others. A change that failed
+ * <i>openwms.core.config.write-behind-max-attempts</i> times is dropped and logged as error, changes of preferences that do not exist are
+ * dropped at once. When <i>openwms.core.config.write-behind-max-pending</i> preferences are buffered, changes of further preferences are
+ * written immediately by the caller. With write-behind disabled each change is written immediately in its own transaction.
+ * <p>
+ * On shutdown all buffered changes are written, changes that still can not be written are logged as error and the shutdown fails with an
+ * {@link IllegalStateException}.
+ * <p>
+ * Buffered changes are visible to readers, but with the version of the preference before the change. Therefore a conditional update of a
+ * preference has to {@link #flush(String, String) flush} its buffered change first, otherwise the change would overwrite the conditional
+ * update later on.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+class UserPreferenceWriteBehind {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserPreferenceWriteBehind.class);
+    @Autowired
+    private PreferenceRepository preferenceRepository;
+    @Autowired
+    private PreferenceReadModel readModel;
+    @Autowired
+    private FlatPreferenceRepository flatPreferenceRepository;
+    @Autowired
+    private UserPreferenceCache userPreferenceCache;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ConfigurationEventDispatcher eventDispatcher;
+    @Autowired
+    private PreferenceChangeLog changeLog;
+    @Value("${openwms.core.config.write-behind:false}")
+    private boolean enabled;
+    @Value("${openwms.core.config.write-behind-interval:2000}")
+    private long interval;
+    @Value("${openwms.core.config.write-behind-max-size:500}")
+    private int maxSize;
+    @Value("${openwms.core.config.write-behind-max-pending:10000}")
+    private int maxPending;
+    @Value("${openwms.core.config.write-behind-max-attempts:3}")
+    private int maxAttempts;
+    private final ConcurrentMap<PreferenceKey, PendingWrite> buffer = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("preferences-write-behind-"));
+            scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop flushing periodically and write all buffered changes.
+     *
+     * @throws IllegalStateException if buffered changes could not be written and are lost
+     */
+    @PreDestroy
+    void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(interval, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        long droppedBefore = dropped.get();
+        for (int attempt = 0; attempt < maxAttempts && !buffer.isEmpty(); attempt++) {
+            flush();
+        }
+        Map<PreferenceKey, PendingWrite> remaining = new HashMap<>(buffer);
+        remaining.values().forEach(pending -> LOGGER.error("Lost buffered change of preference [{}] of owner [{}] on shutdown: {}",
+                pending.key, pending.owner, pending.attributes()));
+        long lost = remaining.size() + dropped.get() - droppedBefore;
+        if (lost > 0) {
+            throw new IllegalStateException(String.format("[%d] buffered preference changes could not be written on shutdown and are lost",
+                    lost));
+        }
+    }
+
+    /**
+     * Check whether changes are buffered or written immediately.
+     *
+     * @return {@literal true} if write-behind is enabled
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Check whether changes are buffered and not written yet.
+     *
+     * @return {@literal true} if so
+     */
+    boolean hasPending() {
+        return !buffer.isEmpty();
+    }
+
+    /**
+     * Buffer or write a new String value of the preference with {@code owner} and {@code key}.
+     *
+     * @param owner The owner
+     * @param key The key of the preference
+     * @param value The new value
+     * @throws NotFoundException when written immediately and the preference does not exist
+     */
+    void writeValue(String owner, String key, String value) {
+        enqueue(owner, key, pending -> pending.withValue(value));
+    }
+
+    /**
+     * Buffer or write a new float value of the preference with {@code owner} and {@code key}.
+     *
+     * @param owner The owner
+     * @param key The key of the preference
+     * @param floatValue The new value
+     * @throws NotFoundException when written immediately and the preference does not exist
+     */
+    void writeFloatValue(String owner, String key, Float floatValue) {
+        enqueue(owner, key, pending -> pending.withFloatValue(floatValue));
+    }
+
+    /**
+     * Buffer the {@code change}, or write it immediately if write-behind is disabled or the buffer is full and holds no change of the same
+     * preference, which applies backpressure to the callers until the buffer has been flushed.
+     */
+    private void enqueue(String owner, String key, UnaryOperator<PendingWrite> change) {
+        PreferenceKey id = new PreferenceKey(PropertyScope.USER, owner, key);
+        if (!enabled || (buffer.size() >= maxPending && !buffer.containsKey(id))) {
+            writeThrough(change.apply(new PendingWrite(owner, key)));
+            return;
+        }
+        buffer.compute(id, (k, pending) -> change.apply(pending == null ? new PendingWrite(owner, key) : pending));
+        flushIfFull();
+    }
+
+    private void writeThrough(PendingWrite pending) {
+        List<PreferenceVO> written = new TransactionTemplate(transactionManager).execute(status -> write(Collections.singleton(pending)));
+        if (written.isEmpty()) {
+            throw new NotFoundException(String.format("Preference with type [%s], owner [%s] and key [%s] not found", PropertyScope.USER,
+                    pending.owner, pending.key));
+        }
+        eventDispatcher.dispatch(written.get(0));
+    }
+
+    /**
+     * Apply all buffered changes to the given {@code preferences}, so that callers read their own writes before they are flushed.
+     *
+     * @param preferences The preferences read from the database
+     * @return The preferences with buffered changes applied
+     */
+    Collection<PreferenceVO> overlay(Collection<PreferenceVO> preferences) {
+        if (buffer.isEmpty()) {
+            return preferences;
+        }
+        List<PreferenceVO> result = new ArrayList<>(preferences.size());
+        for (PreferenceVO preference : preferences) {
+            result.add(overlay(preference));
+        }
+        return result;
+    }
+
+    /**
+     * Apply the buffered change of the {@code preference}, if any.
+     *
+     * @param preference The preference read from the database
+     * @return The preference with a buffered change applied
+     */
+    PreferenceVO overlay(PreferenceVO preference) {
+        PendingWrite pending = preference.getType() == PropertyScope.USER && !buffer.isEmpty() ?
+                buffer.get(new PreferenceKey(PropertyScope.USER, preference.getOwner(), preference.getKey())) : null;
+        return pending == null ? preference : pending.applyTo(preference);
+    }
+
+    /**
+     * Write all buffered changes in one transaction, or each change in its own transaction if that fails.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            if (buffer.isEmpty()) {
+                return;
+            }
+            Map<PreferenceKey, PendingWrite> batch = new HashMap<>(buffer);
+            try {
+                List<PreferenceVO> written = new TransactionTemplate(transactionManager).execute(status -> write(batch.values()));
+                batch.forEach(buffer::remove);
+                written.forEach(eventDispatcher::dispatch);
+                LOGGER.debug("Flushed [{}] buffered preference changes", batch.size());
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Flushing [{}] buffered preference changes failed, writing them one by one: {}", batch.size(), ex.getMessage());
+                batch.forEach(this::flushOne);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushOne(PreferenceKey id, PendingWrite pending) {
+        try {
+            List<PreferenceVO> written = new TransactionTemplate(transactionManager)
+                    .execute(status -> write(Collections.singleton(pending)));
+            buffer.remove(id, pending);
+            written.forEach(eventDispatcher::dispatch);
+        } catch (RuntimeException ex) {
+            PendingWrite failed = buffer.computeIfPresent(id, (k, current) -> current.failed());
+            if (failed != null && failed.attempts >= maxAttempts && buffer.remove(id, failed)) {
+                dropped.incrementAndGet();
+                LOGGER.error("Dropped buffered change of preference [{}] of owner [{}] after [{}] failed attempts: {}", pending.key,
+                        pending.owner, failed.attempts, failed.attributes(), ex);
+            } else {
+                LOGGER.warn("Writing buffered change of preference [{}] of owner [{}] failed, retrying later: {}", pending.key,
+                        pending.owner, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write the buffered change of the preference with {@code owner} and {@code key} immediately in a new transaction, if there is one.
+     * Called before a conditional update of the preference, so that the version the condition is checked against includes the change.
+     *
+     * @param owner The owner
+     * @param key The key of the preference
+     */
+    void flush(String owner, String key) {
+        PreferenceKey id = new PreferenceKey(PropertyScope.USER, owner, key);
+        if (!buffer.containsKey(id)) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            PendingWrite pending = buffer.get(id);
+            if (pending == null) {
+                return;
+            }
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            List<PreferenceVO> written = template.execute(status -> write(Collections.singleton(pending)));
+            buffer.remove(id, pending);
+            written.forEach(eventDispatcher::dispatch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private List<PreferenceVO> write(Collection<PendingWrite> pendingWrites) {
+        List<PreferenceVO> written = new ArrayList<>(pendingWrites.size());
+        for (PendingWrite pending : pendingWrites) {
+            if (preferenceRepository.updateByKey(UserPreference.class, pending.owner, pending.key, pending.attributes()) == 0) {
+                LOGGER.warn("Dropped buffered change of not existing preference [{}] of owner [{}]", pending.key, pending.owner);
+                continue;
+            }
+            if (!pending.floatValueSet) {
+                readModel.updateValue(PropertyScope.USER, pending.owner, pending.key, pending.value);
+            } else if (!pending.valueSet) {
+                readModel.updateFloatValue(PropertyScope.USER, pending.owner, pending.key, pending.floatValue);
+            } else {
+                readModel.updateValues(PropertyScope.USER, pending.owner, pending.key, pending.value, pending.floatValue);
+            }
+            changeLog.record(PropertyScope.USER, pending.owner, pending.key, null);
+            PreferenceVO result = flatPreferenceRepository.findVOByKey(PropertyScope.USER, pending.owner, pending.key);
+            if (result == null) {
+                userPreferenceCache.invalidate(PropertyScope.USER, pending.owner);
+            } else {
+                userPreferenceCache.update(result);
+                written.add(result);
+            }
+        }
+        return written;
+    }
+
+    private void flushIfFull() {
+        if (buffer.size() >= maxSize && scheduler != null && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            LOGGER.error("Unexpected exception while flushing preference changes: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * A PendingWrite is an immutable, buffered change of one preference.
+     */
+    private static final class PendingWrite {
+
+        private final String owner;
+        private final String key;
+        private final String value;
+        private final boolean valueSet;
+        private final Float floatValue;
+        private final boolean floatValueSet;
+        private final int attempts;
+
+        private PendingWrite(String owner, String key) {
+            this(owner, key, null, false, null, false, 0);
+        }
+
+        private PendingWrite(String owner, String key, String value, boolean valueSet, Float floatValue, boolean floatValueSet,
+                int attempts) {
+            this.owner = owner;
+            this.key = key;
+            this.value = value;
+            this.valueSet = valueSet;
+            this.floatValue = floatValue;
+            this.floatValueSet = floatValueSet;
+            this.attempts = attempts;
+        }
+
+        private PendingWrite withValue(String newValue) {
+            return new PendingWrite(owner, key, newValue, true, floatValue, floatValueSet, attempts);
+        }
+
+        private PendingWrite withFloatValue(Float newFloatValue) {
+            return new PendingWrite(owner, key, value, valueSet, newFloatValue, true, attempts);
+        }
+
+        private PendingWrite failed() {
+            return new PendingWrite(owner, key, value, valueSet, floatValue, floatValueSet, attempts + 1);
+        }
+
+        private Map<String, Object> attributes() {
+            Map<String, Object> result = new HashMap<>(4);
+            if (valueSet) {
+                result.put("value", value);
+            }
+            if (floatValueSet) {
+                result.put("floatValue", floatValue);
+            }
+            return result;
+        }
+
+        private PreferenceVO applyTo(PreferenceVO vo) {
+            return new PreferenceVO(vo.getType(), vo.getOwner(), vo.getKey(), valueSet ? value : vo.getValue(),
+                    floatValueSet ? floatValue : vo.getFloatValue(), vo.getMinimum(), vo.getMaximum(), vo.getDescription(),
+                    vo.getVersion());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+/**
+ * A BlockingHandlerExecutor decides on which thread the blocking handlers of the preferences API are executed. By default a handler runs
+ * on the servlet thread, like any other handler. With <i>openwms.core.config.async-requests</i> the handler is executed asynchronously and
+ * the servlet thread is released while the handler waits for the database. Handlers run on virtual threads if the JVM supports them,
+ * otherwise on a pool of <i>openwms.core.config.async-requests-max-concurrency</i> threads with a queue of
+ * <i>openwms.core.config.async-requests-queue-capacity</i> handlers.
+ * <p>
+ * In async mode at most <i>openwms.core.config.async-requests-max-concurrency</i> handlers run at the same time, this limit should not
+ * exceed the size of the connection pool. Handlers that do not get a permit within <i>openwms.core.config.async-requests-timeout</i>
+ * milliseconds, or that are rejected by the full queue, fail with a {@link TaskRejectedException}.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+class BlockingHandlerExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockingHandlerExecutor.class);
+    @Autowired
+    private LatencyRecorder recorder;
+    @Value("${openwms.core.config.async-requests:false}")
+    private boolean asyncRequests;
+    @Value("${openwms.core.config.async-requests-max-concurrency:20}")
+    private int maxConcurrency;
+    @Value("${openwms.core.config.async-requests-queue-capacity:1000}")
+    private int queueCapacity;
+    @Value("${openwms.core.config.async-requests-timeout:30000}")
+    private long timeout;
+    private ExecutorService executorService;
+    private AsyncTaskExecutor executor;
+    private Semaphore permits;
+
+    @PostConstruct
+    void start() {
+        if (!asyncRequests) {
+            return;
+        }
+        permits = new Semaphore(maxConcurrency);
+        executorService = newVirtualThreadExecutor();
+        if (executorService == null) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("preferences-requests-");
+            threadFactory.setDaemon(true);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity), threadFactory);
+            pool.allowCoreThreadTimeOut(true);
+            executorService = pool;
+            LOGGER.info("Virtual threads not supported, blocking handlers run on a pool of [{}] threads", maxConcurrency);
+        } else {
+            LOGGER.info("Blocking handlers run on virtual threads, at most [{}] at the same time", maxConcurrency);
+        }
+        executor = new ConcurrentTaskExecutor(executorService);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Execute the {@code handler}.
+     *
+     * @param handler The blocking part of a request handler
+     * @param <T> The type of the result
+     * @return Either the result of the {@code handler} or, in async mode, a {@link WebAsyncTask} that produces it
+     */
+    <T> Object execute(Supplier<T> handler) {
+        if (executor == null) {
+            return handler.get();
+        }
+        return new WebAsyncTask<>(timeout, executor, bound(handler));
+    }
+
+    /**
+     * The request attributes and the latency sample of the servlet thread are handed over to the executing thread, so that e.g. the
+     * routing of reads to a replica considers the HTTP session.
+     */
+    private <T> Callable<T> bound(Supplier<T> handler) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            bindSession((ServletRequestAttributes) attributes);
+        }
+        LatencyRecorder.Sample sample = recorder.getSample();
+        return () -> {
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new TaskRejectedException(String.format("No permit to execute the request within [%d] ms", timeout));
+            }
+            RequestContextHolder.setRequestAttributes(attributes);
+            recorder.setSample(sample);
+            try {
+                return handler.get();
+            } finally {
+                recorder.setSample(null);
+                RequestContextHolder.resetRequestAttributes();
+                permits.release();
+            }
+        };
+    }
+
+    /**
+     * The request attributes are completed as soon as the servlet thread is released, afterwards they only reach a session that has been
+     * obtained before and can not create one. So the session is looked up on the servlet thread, and created for requests that may
+     * write, e.g. to remember the write for the read-your-writes guard of the replica routing.
+     */
+    private static void bindSession(ServletRequestAttributes attributes) {
+        HttpServletRequest request = attributes.getRequest();
+        if ("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())) {
+            attributes.getAttributeNames(RequestAttributes.SCOPE_SESSION);
+        } else {
+            attributes.getSessionId();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+/**
+ * A CborHttpMessageConverter reads and writes <a href="https://tools.ietf.org/html/rfc7049">CBOR</a> with Jackson, the binary JSON format
+ * is registered as {@value #CBOR_VALUE}.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+class CborHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    /** Media type of CBOR as String. */
+    static final String CBOR_VALUE = "application/cbor";
+    /** Media type of CBOR. */
+    static final MediaType CBOR = MediaType.valueOf(CBOR_VALUE);
+
+    /**
+     * Create with an {@link ObjectMapper} that is backed by a {@link com.fasterxml.jackson.dataformat.cbor.CBORFactory}.
+     *
+     * @param objectMapper The mapper
+     */
+    CborHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper, CBOR);
+    }
+}
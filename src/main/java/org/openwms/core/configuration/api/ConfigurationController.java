@@ -15,33 +15,289 @@
  */
 package org.openwms.core.configuration.api;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.openwms.core.configuration.ConfigurationService;
+import org.openwms.core.configuration.InvalidPreferenceRequestException;
+import org.openwms.core.configuration.PreferenceField;
+import org.openwms.core.configuration.PreferenceVO;
+import org.openwms.core.configuration.PropertyScope;
 import org.openwms.core.configuration.file.AbstractPreference;
+import org.openwms.core.configuration.file.Preferences;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.MediaType;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
-import reactor.core.publisher.Flux;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
- * A ConfigurationController.
+ * A ConfigurationController serves preferences as read-only {@link PreferenceVO}s, that are read with projection queries from the
+ * denormalized read model. Handlers that block on the database return their result either directly or, if asynchronous request processing
+ * is enabled, as a {@link org.springframework.web.context.request.async.WebAsyncTask}, see {@link BlockingHandlerExecutor}.
  *
  * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
  * @since 2.0
  */
-@RestController("/v1/preferences")
+@RestController
+@RequestMapping("/v1/preferences")
 class ConfigurationController {
 
     @Autowired
     private ConfigurationService configurationService;
+    @Autowired
+    private BlockingHandlerExecutor executor;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Stream all preferences, one JSON document per line. The request thread does not wait for the database, preferences are read page by
+     * page while the response is written, see {@link StreamingSubscriber}.
+     *
+     * @return The response the preferences are written to
+     */
+    @GetMapping(params = {"!scope", "!owner", "!keyPrefix", "!fields"}, produces = StreamingSubscriber.APPLICATION_STREAM_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> findAllReactive() {
+        return StreamingSubscriber.stream(configurationService.listReactive(), objectMapper);
+    }
 
-    @GetMapping(produces= MediaType.APPLICATION_OCTET_STREAM_VALUE)
-    public Flux<AbstractPreference> findAllReactive() {
-        return Flux.fromIterable(configurationService.findAll()).log();
+    /**
+     * Stream the preferences of a scope, one JSON document per line, see {@link #findAllReactive()}.
+     *
+     * @param scope The scope
+     * @param owner The owner, all owners if not set
+     * @return The response the preferences are written to
+     */
+    @GetMapping(value = "/{scope}", params = {"!keyPrefix", "!fields"}, produces = StreamingSubscriber.APPLICATION_STREAM_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> findByTypeReactive(@PathVariable("scope") PropertyScope scope,
+            @RequestParam(value = "owner", required = false) String owner) {
+        return StreamingSubscriber.stream(configurationService.listReactive(scope, owner), objectMapper);
     }
 
+    @GetMapping(params = {"!scope", "!owner", "!keyPrefix", "!fields"})
+    public Iterable<PreferenceVO> findAll() {
+        return configurationService.list();
+    }
+
+    /**
+     * Find all preferences filtered by scope, owner and the beginning of the key. Filters are applied by the query, with {@code fields}
+     * only the selected fields are read and written, e.g. {@code ?fields=key,value}.
+     *
+     * @param scope The scope, all scopes if not set
+     * @param owner The owner, all owners if not set
+     * @param keyPrefix The beginning of the key, all keys if not set
+     * @param fields Names of the fields to return, all fields if not set
+     * @return The preferences, either as PreferenceVOs or with the selected fields only
+     */
     @GetMapping
-    public Iterable<AbstractPreference> findAll() {
-        return configurationService.findAll();
+    public Object find(@RequestParam(value = "scope", required = false) PropertyScope scope,
+            @RequestParam(value = "owner", required = false) String owner,
+            @RequestParam(value = "keyPrefix", required = false) String keyPrefix,
+            @RequestParam(value = "fields", required = false) List<String> fields) {
+        Set<PreferenceField> selected = PreferenceField.of(fields);
+        return executor.execute(() -> select(configurationService.list(scope, owner, keyPrefix, selected), selected));
+    }
+
+    /**
+     * Find the preferences of a scope, see {@link #find(PropertyScope, String, String, List)} for the filters. Without filters and
+     * field selection USER preferences of a prewarmed user are served from memory, a {@code keyPrefix} without field selection selects a
+     * namespace of keys, e.g. {@code ?owner=USER1&keyPrefix=ui.grid.orders.}, which is served from the in-memory key index.
+     *
+     * @param scope The scope
+     * @param owner The owner, all owners if not set
+     * @param keyPrefix The beginning of the key, all keys if not set
+     * @param fields Names of the fields to return, all fields if not set
+     * @return The preferences, either as PreferenceVOs or with the selected fields only
+     */
+    @GetMapping("/{scope}")
+    public Object findByType(@PathVariable("scope") PropertyScope scope,
+            @RequestParam(value = "owner", required = false) String owner,
+            @RequestParam(value = "keyPrefix", required = false) String keyPrefix,
+            @RequestParam(value = "fields", required = false) List<String> fields) {
+        Set<PreferenceField> selected = PreferenceField.of(fields);
+        return executor.execute(() -> {
+            if (fields == null) {
+                return keyPrefix == null ? configurationService.list(scope, owner) :
+                        configurationService.listByKeyPrefix(scope, owner, keyPrefix);
+            }
+            return select(configurationService.list(scope, owner == null || owner.isEmpty() ? null : owner, keyPrefix, selected),
+                    selected);
+        });
+    }
+
+    private Collection<?> select(Collection<PreferenceVO> preferences, Set<PreferenceField> fields) {
+        if (fields.isEmpty()) {
+            return preferences;
+        }
+        List<Map<String, Object>> result = new ArrayList<>(preferences.size());
+        for (PreferenceVO preference : preferences) {
+            Map<String, Object> selected = new LinkedHashMap<>(fields.size() * 4 / 3 + 1);
+            for (PreferenceField field : fields) {
+                Object value = field.valueOf(preference);
+                if (value != null) {
+                    selected.put(field.getFieldName(), value);
+                }
+            }
+            result.add(selected);
+        }
+        return result;
+    }
+
+    /**
+     * Find the preferences of all {@code owners} within the given {@code scope} with one request instead of one request per owner.
+     *
+     * @param scope The scope of the preferences, must not be {@link PropertyScope#APPLICATION}
+     * @param owners The owners to search for
+     * @return A Map with the owner as key and its preferences as value
+     * @throws InvalidPreferenceRequestException if {@code scope} is {@link PropertyScope#APPLICATION}
+     */
+    @PostMapping("/{scope}/batch")
+    public Object findByOwners(@PathVariable("scope") PropertyScope scope, @RequestBody List<String> owners) {
+        if (scope == PropertyScope.APPLICATION) {
+            throw new InvalidPreferenceRequestException("Preferences in scope " + scope + " do not have an owner");
+        }
+        return executor.execute(() -> groupByOwner(scope, owners));
+    }
+
+    private Map<String, List<PreferenceVO>> groupByOwner(PropertyScope scope, List<String> owners) {
+        Map<String, ? extends List<? extends AbstractPreference>> found =
+                configurationService.findByType(Preferences.typeOf(scope), owners);
+        Map<String, List<PreferenceVO>> result = new LinkedHashMap<>(found.size() * 4 / 3 + 1);
+        found.forEach((owner, preferences) ->
+                result.put(owner, preferences.stream().map(PreferenceVO::of).collect(Collectors.toList())));
+        return result;
+    }
+
+    /**
+     * Prewarm the preferences of a user in background, called by the authentication flow after a successful login.
+     *
+     * @param username The name of the user
+     * @param roles The names of all roles the user is assigned to
+     */
+    @PostMapping("/users/{username}/prewarm")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void prewarm(@PathVariable("username") String username, @RequestBody(required = false) List<String> roles) {
+        configurationService.prewarm(username, roles);
+    }
+
+    /**
+     * Release the prewarmed preferences of a user, called on logout.
+     *
+     * @param username The name of the user
+     */
+    @DeleteMapping("/users/{username}/prewarm")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void release(@PathVariable("username") String username) {
+        configurationService.release(username);
+    }
+
+    @GetMapping("/users/{username}")
+    public Object findForUser(@PathVariable("username") String username,
+            @RequestParam(value = "roles", required = false) List<String> roles) {
+        return executor.execute(() -> configurationService.listForUser(username, roles));
+    }
+
+    /**
+     * Update a preference if it still has the version that is passed in the request body.
+     *
+     * @param preference The preference with the new values and the expected version
+     * @return The updated preference with its new version
+     */
+    @PutMapping
+    public Object compareAndSet(@RequestBody PreferenceVO preference) {
+        return executor.execute(() -> configurationService.compareAndSet(preference));
+    }
+
+    /**
+     * Set either the float value or, if no float value is given, the String value of a preference, without reading it first.
+     *
+     * @param scope The scope of the preference
+     * @param key The key of the preference
+     * @param owner The owner, omitted in application scope
+     * @param preference Carries the new {@code value} or {@code floatValue}
+     * @return The updated preference with its new version
+     */
+    @PatchMapping("/{scope}/{key:.+}")
+    public Object update(@PathVariable("scope") PropertyScope scope, @PathVariable("key") String key,
+            @RequestParam(value = "owner", required = false) String owner, @RequestBody PreferenceVO preference) {
+        return executor.execute(() -> preference.getFloatValue() == null ?
+                configurationService.updateValue(scope, owner, key, preference.getValue()) :
+                configurationService.updateFloatValue(scope, owner, key, preference.getFloatValue()));
+    }
+
+    /**
+     * Set either the float value or, if no float value is given, the String value of a preference of a user. The change may be written
+     * asynchronously, see {@link ConfigurationService#writeUserValue(String, String, String)}.
+     *
+     * @param username The name of the user
+     * @param key The key of the preference
+     * @param preference Carries the new {@code value} or {@code floatValue}
+     */
+    @PutMapping("/users/{username}/values/{key:.+}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void write(@PathVariable("username") String username, @PathVariable("key") String key,
+            @RequestBody PreferenceVO preference) {
+        if (preference.getFloatValue() == null) {
+            configurationService.writeUserValue(username, key, preference.getValue());
+        } else {
+            configurationService.writeUserFloatValue(username, key, preference.getFloatValue());
+        }
+    }
+
+    /**
+     * A request for preferences that can not be answered, e.g. with an unknown field, is reported to the client as 400 (Bad Request). Other
+     * invalid arguments are failures of the server and their messages are not returned.
+     *
+     * @param ex The cause
+     * @return The message of the cause
+     */
+    @ExceptionHandler(InvalidPreferenceRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String onInvalidRequest(InvalidPreferenceRequestException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * A request that can not be executed because the limit of concurrently executed handlers is reached is reported to the client as 503
+     * (Service Unavailable).
+     *
+     * @param ex The cause
+     * @return The message of the cause
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String onRejected(TaskRejectedException ex) {
+        return ex.getMessage();
+    }
+
+    /**
+     * A concurrent modification is reported to the client as 409 (Conflict), the client has to read the preference again.
+     *
+     * @param ex The cause
+     * @return The message of the cause
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String onConflict(OptimisticLockingFailureException ex) {
+        return ex.getMessage();
     }
 }
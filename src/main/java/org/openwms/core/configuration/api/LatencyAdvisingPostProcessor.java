@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openwms.core.configuration.ConfigurationService;
+import org.openwms.core.configuration.api.LatencyRecorder.Stage;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.Repository;
+
+/**
+ * A LatencyAdvisingPostProcessor adds an interceptor to the existing proxies of the {@link ConfigurationService} and all Spring Data
+ * repositories that records the time spent in these beans as {@link Stage#SERVICE} respectively {@link Stage#REPOSITORY} of sampled
+ * requests. The interceptor is added as the outermost advice, so the service stage includes transaction handling.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see LatencyRecorder
+ * @since 2.0
+ */
+class LatencyAdvisingPostProcessor implements BeanPostProcessor, Ordered {
+
+    private final LatencyRecorder recorder;
+
+    LatencyAdvisingPostProcessor(LatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only beans that are already proxied are advised, no additional proxies are created.
+     */
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof Advised) || ((Advised) bean).isFrozen()) {
+            return bean;
+        }
+        if (bean instanceof ConfigurationService) {
+            ((Advised) bean).addAdvice(0, interceptor(Stage.SERVICE));
+        } else if (bean instanceof Repository) {
+            ((Advised) bean).addAdvice(0, interceptor(Stage.REPOSITORY));
+        }
+        return bean;
+    }
+
+    private MethodInterceptor interceptor(Stage stage) {
+        return invocation -> {
+            if (!recorder.isSampled()) {
+                return invocation.proceed();
+            }
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                recorder.record(stage, System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Run after all other post processors have created their proxies.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * A LatencyConfiguration wires the latency measurement into the request processing of the preferences API. The serialization of
+ * responses is measured by the {@link SerializationTimingAdvice}.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see LatencyRecorder
+ * @since 2.0
+ */
+@Configuration
+class LatencyConfiguration extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private LatencyRecorder recorder;
+
+    public static
+    @Bean
+    LatencyAdvisingPostProcessor latencyAdvisingPostProcessor(LatencyRecorder recorder) {
+        return new LatencyAdvisingPostProcessor(recorder);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new LatencyInterceptor(recorder)).addPathPatterns("/v1/preferences", "/v1/preferences/**");
+    }
+}
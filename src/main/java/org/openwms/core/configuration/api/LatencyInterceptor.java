@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * A LatencyInterceptor starts and ends the latency measurement of requests to the preferences API. The measurement of an asynchronously
+ * processed request is kept in a request attribute between the first and the second dispatch.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see LatencyRecorder
+ * @since 2.0
+ */
+class LatencyInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String SAMPLE = LatencyInterceptor.class.getName() + ".SAMPLE";
+    private final LatencyRecorder recorder;
+
+    LatencyInterceptor(LatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        LatencyRecorder.Sample sample = (LatencyRecorder.Sample) request.getAttribute(SAMPLE);
+        if (sample == null) {
+            recorder.begin();
+        } else {
+            request.removeAttribute(SAMPLE);
+            recorder.setSample(sample);
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The response body has been written when the handler has been processed.
+     */
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        recorder.endSerialization();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        LatencyRecorder.Sample sample = recorder.getSample();
+        if (sample != null) {
+            request.setAttribute(SAMPLE, sample);
+            recorder.setSample(null);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        recorder.end();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * A LatencyRecorder records the latency of the processing stages of sampled requests to the preferences API. Only every
+ * <i>openwms.core.config.latency-sampling-rate</i>-th request is sampled (0 switches recording off), all other requests only pay for one
+ * thread-local lookup per stage.
+ * <p>
+ * Stages are measured inclusively: {@link Stage#TOTAL} spans the whole request, {@link Stage#CONTROLLER} is the total minus the
+ * serialization of the response, {@link Stage#SERVICE} includes the transaction handling and all {@link Stage#REPOSITORY} calls.
+ * <p>
+ * Each stage is recorded by a Micrometer timer {@code preferences.latency}, tagged with the name of the stage, that publishes the 50th,
+ * 95th and 99th percentile. Nothing is recorded before the timers have been bound to a registry.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Component
+class LatencyRecorder implements MeterBinder {
+
+    /**
+     * Processing stages of a request.
+     */
+    enum Stage {
+        TOTAL, CONTROLLER, SERVICE, REPOSITORY, SERIALIZATION
+    }
+
+    private final ThreadLocal<Sample> current = new ThreadLocal<>();
+    @Value("${openwms.core.config.latency-sampling-rate:100}")
+    private int samplingRate;
+    private volatile Timer[] timers;
+
+    /**
+     * Decide whether the request on the current thread is sampled and start the measurement if so.
+     */
+    void begin() {
+        if (samplingRate > 0 && ThreadLocalRandom.current().nextInt(samplingRate) == 0) {
+            current.set(new Sample(System.nanoTime()));
+        }
+    }
+
+    /**
+     * End the measurement of the request on the current thread.
+     */
+    void end() {
+        endSerialization();
+        Sample sample = current.get();
+        if (sample != null) {
+            current.remove();
+            long total = System.nanoTime() - sample.start;
+            doRecord(Stage.TOTAL, total);
+            doRecord(Stage.CONTROLLER, total - sample.serialization);
+        }
+    }
+
+    /**
+     * Check whether the request on the current thread is sampled.
+     *
+     * @return {@literal true} if so
+     */
+    boolean isSampled() {
+        return current.get() != null;
+    }
+
+    /**
+     * Mark the start of the serialization of the response of the request on the current thread.
+     */
+    void beginSerialization() {
+        Sample sample = current.get();
+        if (sample != null && !sample.serializing) {
+            sample.serializing = true;
+            sample.serializationStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * Record the serialization of the response of the request on the current thread as {@link Stage#SERIALIZATION}, if it has been
+     * started.
+     */
+    void endSerialization() {
+        Sample sample = current.get();
+        if (sample != null && sample.serializing) {
+            sample.serializing = false;
+            record(Stage.SERIALIZATION, System.nanoTime() - sample.serializationStart);
+        }
+    }
+
+    /**
+     * Record the latency of a {@code stage} of the request on the current thread.
+     *
+     * @param stage The stage
+     * @param nanos The latency in nanoseconds
+     */
+    void record(Stage stage, long nanos) {
+        Sample sample = current.get();
+        if (sample == null) {
+            return;
+        }
+        if (stage == Stage.SERIALIZATION) {
+            sample.serialization += nanos;
+        }
+        doRecord(stage, nanos);
+    }
+
+    private void doRecord(Stage stage, long nanos) {
+        Timer[] bound = timers;
+        if (bound != null) {
+            bound[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Return the sample of the request on the current thread, to continue the measurement on another thread.
+     *
+     * @return The sample or {@literal null} if the request is not sampled
+     */
+    Sample getSample() {
+        return current.get();
+    }
+
+    /**
+     * Continue the measurement of a request on the current thread.
+     *
+     * @param sample The sample taken from the thread that started the measurement, {@literal null} to stop measuring on this thread
+     */
+    void setSample(Sample sample) {
+        if (sample == null) {
+            current.remove();
+        } else {
+            current.set(sample);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * One timer per {@link Stage}.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Timer[] bound = new Timer[Stage.values().length];
+        for (Stage stage : Stage.values()) {
+            bound[stage.ordinal()] = Timer.builder("preferences.latency")
+                    .tag("stage", stage.name().toLowerCase())
+                    .description("Latency of a processing stage of sampled requests to the preferences API")
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+        timers = bound;
+    }
+
+    /**
+     * The measurement of one request.
+     */
+    static final class Sample {
+
+        private final long start;
+        private long serialization;
+        private long serializationStart;
+        private boolean serializing;
+
+        private Sample(long start) {
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import org.openwms.core.configuration.api.LatencyRecorder.Stage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * A SerializationTimingAdvice marks the start of the serialization of responses of the preferences API, the serialization ends when the
+ * handler has been processed, see {@link LatencyInterceptor}. The time in between is recorded as {@link Stage#SERIALIZATION} of sampled
+ * requests. The advice only applies to the {@link ConfigurationController}, the message converters are left untouched.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see LatencyRecorder
+ * @since 2.0
+ */
+@ControllerAdvice(assignableTypes = ConfigurationController.class)
+class SerializationTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    @Autowired
+    private LatencyRecorder recorder;
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only responses of sampled requests are advised.
+     */
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return recorder.isSampled();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        recorder.beginSerialization();
+        return body;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * A StreamingConfiguration bounds the async request processing of Spring MVC, that writes streamed responses. A thread is occupied for
+ * the whole time a response is streamed, so at most <i>openwms.core.config.streaming-max-concurrency</i> responses are written at the
+ * same time and at most <i>openwms.core.config.streaming-queue-capacity</i> wait for a thread. Further requests fail with a
+ * {@link org.springframework.core.task.TaskRejectedException}. A response that is not written within
+ * <i>openwms.core.config.streaming-timeout</i> milliseconds is aborted.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see StreamingSubscriber
+ * @since 2.0
+ */
+@Configuration
+class StreamingConfiguration extends WebMvcConfigurerAdapter {
+
+    @Value("${openwms.core.config.streaming-max-concurrency:8}")
+    private int maxConcurrency;
+    @Value("${openwms.core.config.streaming-queue-capacity:16}")
+    private int queueCapacity;
+    @Value("${openwms.core.config.streaming-timeout:300000}")
+    private long timeout;
+
+    /**
+     * Streamed responses are written on a bounded pool instead of the unbounded default executor of Spring MVC.
+     *
+     * @return The executor used to write streamed responses
+     */
+    public
+    @Bean
+    ThreadPoolTaskExecutor preferencesStreamingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("preferences-streaming-");
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(preferencesStreamingExecutor());
+        configurer.setDefaultTimeout(timeout);
+    }
+}
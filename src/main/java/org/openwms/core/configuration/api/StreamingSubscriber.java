@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * A StreamingSubscriber writes the elements of a {@link Publisher} to the response of an asynchronously processed request, as one JSON
+ * document per line. The request thread is released immediately and the response is written by the async request processing of Spring
+ * MVC, on the bounded executor of the {@link StreamingConfiguration}, so the threads the publisher emits on never wait for a slow client.
+ * Elements are requested in batches of {@value #BATCH_SIZE}, the next half batch as soon as half of the requested elements have been
+ * written, so that at most one batch is buffered. The subscription is cancelled when the response fails.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+final class StreamingSubscriber implements Subscriber<Object>, StreamingResponseBody {
+
+    /** Content type of a stream of JSON documents, separated by line breaks. */
+    static final String APPLICATION_STREAM_JSON_VALUE = "application/stream+json";
+    private static final MediaType APPLICATION_STREAM_JSON = MediaType.valueOf(APPLICATION_STREAM_JSON_VALUE);
+    private static final int BATCH_SIZE = 256;
+    private static final int LINE_BREAK = '\n';
+    private static final Object COMPLETE = new Object();
+    private final Publisher<?> publisher;
+    private final ObjectWriter writer;
+    private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+    private volatile Subscription subscription;
+
+    private StreamingSubscriber(Publisher<?> publisher, ObjectWriter writer) {
+        this.publisher = publisher;
+        this.writer = writer;
+    }
+
+    /**
+     * Create the response body that subscribes to the {@code publisher} when the response is written.
+     *
+     * @param publisher The source of the elements
+     * @param mapper Serializes each element
+     * @return The response to return from the handler
+     */
+    static ResponseEntity<StreamingResponseBody> stream(Publisher<?> publisher, ObjectMapper mapper) {
+        return ResponseEntity.ok().contentType(APPLICATION_STREAM_JSON).body(new StreamingSubscriber(publisher, mapper.writer()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Subscribe to the publisher and write its elements until it completes. The output is flushed whenever no further element is
+     * buffered.
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        publisher.subscribe(this);
+        int written = 0;
+        try {
+            for (Object signal = next(out); signal != COMPLETE; signal = next(out)) {
+                if (signal instanceof Failure) {
+                    throw ((Failure) signal).toException();
+                }
+                out.write(writer.writeValueAsBytes(signal));
+                out.write(LINE_BREAK);
+                if (++written == BATCH_SIZE / 2) {
+                    written = 0;
+                    subscription.request(BATCH_SIZE / 2);
+                }
+            }
+            out.flush();
+        } catch (IOException | RuntimeException ex) {
+            cancel();
+            throw ex;
+        }
+    }
+
+    private Object next(OutputStream out) throws IOException {
+        Object signal = signals.poll();
+        if (signal == null) {
+            out.flush();
+            try {
+                signal = signals.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the next element");
+            }
+        }
+        return signal;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onSubscribe(Subscription s) {
+        subscription = s;
+        s.request(BATCH_SIZE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNext(Object element) {
+        signals.add(element);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onError(Throwable t) {
+        signals.add(new Failure(t));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onComplete() {
+        signals.add(COMPLETE);
+    }
+
+    private void cancel() {
+        Subscription s = subscription;
+        if (s != null) {
+            s.cancel();
+        }
+    }
+
+    private static final class Failure {
+
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+
+        private RuntimeException toException() {
+            return cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause.getMessage(), cause);
+        }
+    }
+}
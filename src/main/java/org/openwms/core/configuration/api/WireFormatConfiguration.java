@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014-2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openwms.core.configuration.api;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * A WireFormatConfiguration adds compact binary encodings of the JSON data model to the content negotiation of the API, JSON stays the
+ * default. Clients choose a format with the {@code Accept} and {@code Content-Type} headers:
+ * <ul>
+ *     <li>{@code application/json}</li>
+ *     <li>{@code application/x-jackson-smile}, Smile with back references to repeated keys and short values</li>
+ *     <li>{@code application/cbor}, CBOR as standardized in RFC 7049</li>
+ * </ul>
+ * Both binary mappers are configured with the same {@code spring.jackson} settings as the JSON one. The binary converters are not
+ * declared as beans, Spring Boot would put converters without a default counterpart, like CBOR, in front of all others and then answer
+ * requests without or with a wildcard {@code Accept} header in CBOR. They are inserted right after the JSON converter instead.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@Configuration
+class WireFormatConfiguration extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder builder;
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Replace the Smile converter Spring MVC adds by default and insert Smile and CBOR after the JSON converter, so that JSON is chosen
+     * whenever the client accepts it.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(c -> c instanceof MappingJackson2SmileHttpMessageConverter || c instanceof CborHttpMessageConverter);
+        int json = converters.size() - 1;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+                json = i;
+                break;
+            }
+        }
+        converters.add(json + 1, new MappingJackson2SmileHttpMessageConverter(smileMapper(builder)));
+        converters.add(json + 2, new CborHttpMessageConverter(cborMapper(builder)));
+    }
+
+    /**
+     * Create a Smile mapper, the shared {@code builder} is only applied, not modified.
+     *
+     * @param builder The builder configured by Spring Boot
+     * @return The mapper
+     */
+    static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper mapper = new ObjectMapper(new SmileFactory());
+        builder.configure(mapper);
+        return mapper;
+    }
+
+    /**
+     * Create a CBOR mapper, the shared {@code builder} is only applied, not modified.
+     *
+     * @param builder The builder configured by Spring Boot
+     * @return The mapper
+     */
+    static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+        builder.configure(mapper);
+        return mapper;
+    }
+}
@@ -21,6 +21,7 @@
  */
 package org.openwms.core.configuration.file;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -29,6 +30,7 @@ import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.Lob;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.XmlType;
@@ -37,11 +39,17 @@ import java.io.Serializable;
 import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openwms.core.configuration.PropertyScope;
 
 /**
  * An AbstractPreference is a superclass for all other preference classes within the application. <p> It encapsulates some common behavior
- * of preference types. </p>
+ * of preference types. </p> <p> All preference types are cached in the second-level cache region {@value #CACHE_REGION} and the results
+ * of their named queries in region {@value #QUERY_CACHE_REGION}, as long as the second-level cache and the query cache are enabled in
+ * the JPA configuration. Because of the joined inheritance the cache is declared on this root entity. </p> <p> Concurrent modifications are
+ * detected with optimistic locking on a version column, no row locks are acquired. </p>
  *
  * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
  * @version 0.2
@@ -51,6 +59,8 @@ import org.openwms.core.configuration.PropertyScope;
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
 @Table(name = "COR_PREFERENCE")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractPreference.CACHE_REGION)
 public abstract class AbstractPreference implements Serializable {
 
     @Id
@@ -58,6 +68,14 @@ public abstract class AbstractPreference implements Serializable {
     private Long id;
     /** Suffix for the FIND_BY_OWNER named query. Default {@value} */
     public static final String FIND_BY_OWNER = ".findByOwner";
+    /** Suffix for the FIND_BY_OWNERS named query. Default {@value} */
+    public static final String FIND_BY_OWNERS = ".findByOwners";
+    /** Suffix for the FIND_BY_KEY named query. Default {@value} */
+    public static final String FIND_BY_KEY = ".findByKey";
+    /** Name of the second-level cache region for all preference entities. Default {@value} */
+    public static final String CACHE_REGION = "preferences";
+    /** Name of the query cache region for the named queries of all preference entities. Default {@value} */
+    public static final String QUERY_CACHE_REGION = "preferences.queries";
 
     /** The String value of the {@code AbstractPreference}. */
     @Column(name = "C_VALUE")
@@ -93,8 +111,34 @@ public abstract class AbstractPreference implements Serializable {
     @Column(name = "C_FROM_FILE")
     private boolean fromFile = true;
 
+    /** Version field for optimistic locking. */
+    @XmlTransient
+    @Version
+    @Column(name = "C_OL")
+    private long ol;
+
     /* ----------------------------- methods ------------------- */
 
+    /**
+     * Return the technical key of the {@link AbstractPreference}.
+     *
+     * @return The id or {@literal null} for transient instances
+     */
+    @JsonIgnore
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Return the optimistic locking version of the {@link AbstractPreference}.
+     *
+     * @return The version, starting with 0 for new instances
+     */
+    @XmlTransient
+    public long getVersion() {
+        return ol;
+    }
+
     /**
      * Return the <code>value</code> of the {@link AbstractPreference}.
      *
@@ -134,6 +178,15 @@ public abstract class AbstractPreference implements Serializable {
         return floatValue;
     }
 
+    /**
+     * Set the <code>floatValue</code> of the {@link AbstractPreference}.
+     *
+     * @param floatValue The floatValue to set
+     */
+    public void setFloatValue(Float floatValue) {
+        this.floatValue = floatValue;
+    }
+
     /**
      * Return the <code>description</code> of the {@link AbstractPreference}.
      *
@@ -225,6 +278,23 @@ public abstract class AbstractPreference implements Serializable {
      */
     protected abstract Object[] getFields();
 
+    /**
+     * Return the key of the preference.
+     *
+     * @return The key
+     */
+    public abstract String getKey();
+
+    /**
+     * Return the owner of the preference. Not all types of preferences are owned by someone, those return {@literal null}.
+     *
+     * @return The owner or {@literal null}
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getOwner() {
+        return null;
+    }
+
     /**
      * Return the particular type of the preference.
      *
@@ -27,6 +27,7 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -51,12 +52,18 @@ import org.springframework.util.Assert;
 @XmlType(name = "applicationPreference", namespace = "http://www.openwms.org/schema/preferences")
 @Entity
 @Table(name = "COR_APP_PREFERENCE", uniqueConstraints = @UniqueConstraint(columnNames = {"C_TYPE", "C_KEY"}))
-@NamedQueries({@NamedQuery(name = ApplicationPreference.NQ_FIND_BY_OWNER, query = "select ap from ApplicationPreference ap")})
+@NamedQueries({@NamedQuery(name = ApplicationPreference.NQ_FIND_BY_OWNER, query = "select ap from ApplicationPreference ap",
+                hints = {@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                        @QueryHint(name = "org.hibernate.cacheRegion", value = AbstractPreference.QUERY_CACHE_REGION)}),
+        @NamedQuery(name = ApplicationPreference.NQ_FIND_BY_KEY, query = "select ap from ApplicationPreference ap where ap.key = :key")})
 public class ApplicationPreference extends AbstractPreference implements Serializable {
 
     /** Query to find all {@code ApplicationPreference}s. Name is {@value}. */
     public static final String NQ_FIND_BY_OWNER = "ApplicationPreference" + FIND_BY_OWNER;
 
+    /** Query to find the {@code ApplicationPreference} with the given <strong>key</strong>. Name is {@value}. */
+    public static final String NQ_FIND_BY_KEY = "ApplicationPreference" + FIND_BY_KEY;
+
     /** Type of this preference. */
     @XmlTransient
     @Enumerated(EnumType.STRING)
@@ -103,6 +110,7 @@ public class ApplicationPreference extends AbstractPreference implements Seriali
      *
      * @return the key
      */
+    @Override
     public String getKey() {
         return key;
     }
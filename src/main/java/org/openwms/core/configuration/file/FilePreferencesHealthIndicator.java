@@ -0,0 +1,61 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.file;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * A FilePreferencesHealthIndicator reports the state of loading the initial preferences file. The indicator is {@code OUT_OF_SERVICE} as
+ * long as the file is still being loaded, so that the web tier can already be up while the service is not yet ready.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see PreferencesLoader
+ * @since 2.0
+ */
+@Component
+class FilePreferencesHealthIndicator extends AbstractHealthIndicator {
+
+    @Autowired
+    private PreferencesLoader loader;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doHealthCheck(Health.Builder builder) throws Exception {
+        if (!loader.isDone()) {
+            builder.outOfService().withDetail("state", "loading");
+            return;
+        }
+        Throwable failure = loader.getFailure();
+        if (failure != null) {
+            builder.down(failure).withDetail("state", "failed");
+            return;
+        }
+        PreferenceIndex index = loader.getNow();
+        builder.up().withDetail("state", "loaded").withDetail("preferences", index == null ? 0 : index.size());
+    }
+}
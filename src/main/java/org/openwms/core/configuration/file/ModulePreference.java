@@ -27,6 +27,7 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -51,7 +52,12 @@ import org.springframework.util.Assert;
 @Table(name = "COR_MODULE_PREFERENCE", uniqueConstraints = @UniqueConstraint(columnNames = {"C_TYPE", "C_OWNER",
         "C_KEY"}))
 @NamedQueries({
-        @NamedQuery(name = ModulePreference.NQ_FIND_BY_OWNER, query = "select mp from ModulePreference mp where mp.owner = :owner")})
+        @NamedQuery(name = ModulePreference.NQ_FIND_BY_OWNER, query = "select mp from ModulePreference mp where mp.owner = :owner",
+                hints = {@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                        @QueryHint(name = "org.hibernate.cacheRegion", value = AbstractPreference.QUERY_CACHE_REGION)}),
+        @NamedQuery(name = ModulePreference.NQ_FIND_BY_OWNERS, query = "select mp from ModulePreference mp where mp.owner in :owners"),
+        @NamedQuery(name = ModulePreference.NQ_FIND_BY_KEY,
+                query = "select mp from ModulePreference mp where mp.owner = :owner and mp.key = :key")})
 public class ModulePreference extends AbstractPreference implements Serializable {
 
     /**
@@ -60,6 +66,19 @@ public class ModulePreference extends AbstractPreference implements Serializable
      */
     public static final String NQ_FIND_BY_OWNER = "ModulePreference" + FIND_BY_OWNER;
 
+    /**
+     * Query to find <strong>all</strong> {@code ModulePreference}s of several {@code Module}s.
+     * <li>Query parameter name <strong>owners</strong> : A collection of owner names to search for.</li><br /> Name is {@value} .
+     */
+    public static final String NQ_FIND_BY_OWNERS = "ModulePreference" + FIND_BY_OWNERS;
+
+    /**
+     * Query to find the {@code ModulePreference} of a {@code Module} with a particular key.
+     * <li>Query parameter name <strong>owner</strong> : The name of the owner.</li>
+     * <li>Query parameter name <strong>key</strong> : The key of the preference.</li><br /> Name is {@value} .
+     */
+    public static final String NQ_FIND_BY_KEY = "ModulePreference" + FIND_BY_KEY;
+
     /**
      * Type of this preference.
      */
@@ -110,6 +129,7 @@ public class ModulePreference extends AbstractPreference implements Serializable
      *
      * @return the key
      */
+    @Override
     public String getKey() {
         return key;
     }
@@ -119,6 +139,7 @@ public class ModulePreference extends AbstractPreference implements Serializable
      *
      * @return the owner
      */
+    @Override
     public String getOwner() {
         return owner;
     }
@@ -0,0 +1,117 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.file;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openwms.core.configuration.PropertyScope;
+import org.openwms.core.exception.NoUniqueResultException;
+
+/**
+ * A PreferenceIndex is an immutable in-memory store of {@link AbstractPreference}s that is indexed by {@link PropertyScope}. The index is
+ * built in one pass over the data that also verifies the uniqueness of each {@link PreferenceKey}, afterwards an instance is never
+ * modified and can be shared between threads without synchronization. To reflect changes a new instance has to be built.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public final class PreferenceIndex {
+
+    private static final PreferenceIndex EMPTY = new PreferenceIndex(Collections.emptyList());
+    private final List<AbstractPreference> all;
+    private final Map<PropertyScope, List<AbstractPreference>> byScope = new EnumMap<>(PropertyScope.class);
+
+    private PreferenceIndex(Collection<? extends AbstractPreference> preferences) {
+        List<AbstractPreference> list = new ArrayList<>(preferences.size());
+        Set<PreferenceKey> keys = new HashSet<>(preferences.size() * 4 / 3 + 1);
+        for (PropertyScope scope : PropertyScope.values()) {
+            byScope.put(scope, new ArrayList<>());
+        }
+        for (AbstractPreference pref : preferences) {
+            if (!keys.add(pref.getPrefKey())) {
+                throw new NoUniqueResultException("Preference with key " + pref.getPrefKey() + " already loaded.");
+            }
+            list.add(pref);
+            byScope.get(pref.getType()).add(pref);
+        }
+        all = Collections.unmodifiableList(list);
+        for (PropertyScope scope : PropertyScope.values()) {
+            byScope.put(scope, Collections.unmodifiableList(byScope.get(scope)));
+        }
+    }
+
+    /**
+     * Build a new index over the given {@code preferences}.
+     *
+     * @param preferences The preferences to index
+     * @return The index
+     * @throws NoUniqueResultException when two preferences share the same {@link PreferenceKey}
+     */
+    public static PreferenceIndex of(Collection<? extends AbstractPreference> preferences) {
+        return preferences == null || preferences.isEmpty() ? EMPTY : new PreferenceIndex(preferences);
+    }
+
+    /**
+     * Return an index without any preferences.
+     *
+     * @return The empty index
+     */
+    public static PreferenceIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Return all preferences in the order they have been passed to build the index.
+     *
+     * @return An unmodifiable list of all preferences
+     */
+    public List<AbstractPreference> findAll() {
+        return all;
+    }
+
+    /**
+     * Return all preferences of the given {@code scope}.
+     *
+     * @param scope The scope to search for
+     * @return An unmodifiable list, never {@literal null}
+     */
+    public List<AbstractPreference> findByScope(PropertyScope scope) {
+        return byScope.get(scope);
+    }
+
+    /**
+     * Return the number of indexed preferences.
+     *
+     * @return The number of preferences
+     */
+    public int size() {
+        return all.size();
+    }
+}
@@ -32,7 +32,7 @@ import java.util.Arrays;
  * @version 0.2
  * @since 0.1
  */
-class PreferenceKey implements Serializable {
+public class PreferenceKey implements Serializable {
 
     private Serializable[] fields;
 
@@ -21,6 +21,7 @@
  */
 package org.openwms.core.configuration.file;
 
+import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
@@ -30,10 +31,19 @@ import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.XmlType;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
+import org.openwms.core.configuration.PropertyScope;
+
 /**
  * An instance of a {@code Preferences} represents the root of a preferences XML file and aggregates all other types of preference.
+ * <p>
+ * The preferences are partitioned by type in one pass, right after unmarshalling, construction or replacement. All preferences and their
+ * partitions are immutable and published safely as one snapshot, so that concurrent readers of {@link #getAll()} and {@link
+ * #getOfType(Class)} never block nor see partially built or mixed lists.
+ * </p>
  *
  * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
  * @version 0.2
@@ -51,104 +61,100 @@ public class Preferences implements Serializable {
             @XmlElement(name = "user", type = UserPreference.class)})
     private List<AbstractPreference> applicationOrRoleOrUserOrModule;
     @XmlTransient
-    private List<ApplicationPreference> applications;
-    @XmlTransient
-    private List<ModulePreference> modules;
-    @XmlTransient
-    private List<UserPreference> users;
-    @XmlTransient
-    private List<RolePreference> roles;
+    private volatile transient Partitions partitions;
     /** All concrete types of AbstractPreference. */
     public static final Class<?>[] TYPES = {ApplicationPreference.class, ModulePreference.class, RolePreference.class,
             UserPreference.class};
 
     /**
-     * Gets the value of the applicationOrRoleOrUserOrModule property. This method is called by the JAXB unmarshaller only.
+     * Create an empty {@code Preferences} instance. Used by the JAXB implementation.
+     */
+    public Preferences() {
+        super();
+    }
+
+    /**
+     * Create a {@code Preferences} instance that aggregates the given {@code preferences}.
+     *
+     * @param preferences All preferences
+     */
+    public Preferences(Collection<? extends AbstractPreference> preferences) {
+        setAll(preferences);
+    }
+
+    /**
+     * JAXB callback to partition all preferences once unmarshalling has finished.
+     *
+     * @param unmarshaller The Unmarshaller in use
+     * @param parent The parent object, not used
+     */
+    void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        partitions = new Partitions(applicationOrRoleOrUserOrModule);
+    }
+
+    /**
+     * Gets the value of the applicationOrRoleOrUserOrModule property. Simple call to {@link #getAll()}.
      *
-     * @return a list of all preferences
+     * @return an unmodifiable list of all preferences
      */
     public List<AbstractPreference> getApplicationOrRoleOrUserOrModule() {
-        if (applicationOrRoleOrUserOrModule == null) {
-            applicationOrRoleOrUserOrModule = new ArrayList<>();
-        }
-        return applicationOrRoleOrUserOrModule;
+        return getAll();
     }
 
     /**
-     * Return a list of all preferences. Simple call to {@link #getApplicationOrRoleOrUserOrModule()}. Is only added due to naming purpose.
+     * Return a list of all preferences.
      *
-     * @return a list of all preferences
+     * @return an unmodifiable list of all preferences
      */
     public List<AbstractPreference> getAll() {
-        return getApplicationOrRoleOrUserOrModule();
+        return current().all;
     }
 
     /**
-     * Return a list of all {@link ApplicationPreference}s or an empty ArrayList when no {@link ApplicationPreference}s exist.
+     * Replace all preferences. Concurrent readers either see all former or all new preferences.
      *
-     * @return a list of all {@link ApplicationPreference}s
+     * @param preferences All preferences
+     */
+    public synchronized void setAll(Collection<? extends AbstractPreference> preferences) {
+        List<AbstractPreference> all = new ArrayList<>(preferences);
+        applicationOrRoleOrUserOrModule = all;
+        partitions = new Partitions(all);
+    }
+
+    /**
+     * Return a list of all {@link ApplicationPreference}s or an empty list when no {@link ApplicationPreference}s exist.
+     *
+     * @return an unmodifiable list of all {@link ApplicationPreference}s
      */
     public List<ApplicationPreference> getApplications() {
-        if (applications == null) {
-            applications = new ArrayList<>();
-            for (AbstractPreference pref : applicationOrRoleOrUserOrModule) {
-                if (pref instanceof ApplicationPreference) {
-                    applications.add((ApplicationPreference) pref);
-                }
-            }
-        }
-        return applications;
+        return getOfType(ApplicationPreference.class);
     }
 
     /**
-     * Return a list of all {@link ModulePreference}s or an empty ArrayList when no {@link ModulePreference}s exist.
+     * Return a list of all {@link ModulePreference}s or an empty list when no {@link ModulePreference}s exist.
      *
-     * @return a list of all {@link ModulePreference}s
+     * @return an unmodifiable list of all {@link ModulePreference}s
      */
     public List<ModulePreference> getModules() {
-        if (modules == null) {
-            modules = new ArrayList<>();
-            for (AbstractPreference pref : applicationOrRoleOrUserOrModule) {
-                if (pref instanceof ModulePreference) {
-                    modules.add((ModulePreference) pref);
-                }
-            }
-        }
-        return modules;
+        return getOfType(ModulePreference.class);
     }
 
     /**
-     * Return a list of all {@link UserPreference}s or an empty ArrayList when no {@link UserPreference}s exist.
+     * Return a list of all {@link UserPreference}s or an empty list when no {@link UserPreference}s exist.
      *
-     * @return a list of all {@link UserPreference}s
+     * @return an unmodifiable list of all {@link UserPreference}s
      */
     public List<UserPreference> getUsers() {
-        if (users == null) {
-            users = new ArrayList<>();
-            for (AbstractPreference pref : applicationOrRoleOrUserOrModule) {
-                if (pref instanceof UserPreference) {
-                    users.add((UserPreference) pref);
-                }
-            }
-        }
-        return users;
+        return getOfType(UserPreference.class);
     }
 
     /**
-     * Return a list of all {@link RolePreference}s or an empty ArrayList when no {@link RolePreference}s exist.
+     * Return a list of all {@link RolePreference}s or an empty list when no {@link RolePreference}s exist.
      *
-     * @return a list of all {@link RolePreference}s
+     * @return an unmodifiable list of all {@link RolePreference}s
      */
     public List<RolePreference> getRoles() {
-        if (roles == null) {
-            roles = new ArrayList<>();
-            for (AbstractPreference pref : applicationOrRoleOrUserOrModule) {
-                if (pref instanceof RolePreference) {
-                    roles.add((RolePreference) pref);
-                }
-            }
-        }
-        return roles;
+        return getOfType(RolePreference.class);
     }
 
     /**
@@ -157,22 +163,96 @@ public class Preferences implements Serializable {
      * @param <T> Expected types are {@code ApplicationPreference}, {@code ModulePreference}, {@code RolePreference}
      * {@code UserPreference}
      * @param clazz The class type of the preference to filter for
-     * @return a list of T.
-
-     @SuppressWarnings("unchecked") public <T extends AbstractPreference> List<T> getOfType(Class<T> clazz) {
-     if (ApplicationPreference.class.equals(clazz)) {
-     return (List<T>) getApplications();
-     }
-     if (ModulePreference.class.equals(clazz)) {
-     return (List<T>) getModules();
-     }
-     if (UserPreference.class.equals(clazz)) {
-     return (List<T>) getUsers();
-     }
-     if (RolePreference.class.equals(clazz)) {
-     return (List<T>) getRoles();
-     }
-     return Collections.<T>emptyList();
-     }
+     * @return an unmodifiable list of T, or an empty list if {@code clazz} is not one of the expected types
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends AbstractPreference> List<T> getOfType(Class<T> clazz) {
+        Partitions current = current();
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(clazz)) {
+                return (List<T>) current.buckets.get(i);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private Partitions current() {
+        Partitions current = partitions;
+        if (current == null) {
+            // Neither unmarshalled nor constructed with preferences, partition under the lock so that a concurrent replacement is not lost
+            synchronized (this) {
+                current = partitions;
+                if (current == null) {
+                    current = new Partitions(applicationOrRoleOrUserOrModule);
+                    partitions = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Return the concrete type of preference that belongs to the given {@code scope}.
+     *
+     * @param scope The scope
+     * @return The type of preference
+     */
+    public static Class<? extends AbstractPreference> typeOf(PropertyScope scope) {
+        switch (scope) {
+            case APPLICATION:
+                return ApplicationPreference.class;
+            case MODULE:
+                return ModulePreference.class;
+            case ROLE:
+                return RolePreference.class;
+            case USER:
+                return UserPreference.class;
+            default:
+                throw new IllegalArgumentException("Unsupported scope " + scope);
+        }
+    }
+
+    /**
+     * Return the scope of the given type of preference.
+     *
+     * @param type The type of preference, may also be a subclass of one of the {@link #TYPES}
+     * @return The scope or {@literal null} if the type is unknown
+     */
+    public static PropertyScope scopeOf(Class<?> type) {
+        for (PropertyScope scope : PropertyScope.values()) {
+            if (typeOf(scope).isAssignableFrom(type)) {
+                return scope;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Immutable snapshot of all preferences and their partitions, one bucket per element of {@link #TYPES}.
      */
+    private static final class Partitions {
+
+        private final List<AbstractPreference> all;
+        private final List<List<AbstractPreference>> buckets;
+
+        private Partitions(List<AbstractPreference> all) {
+            this.all = all == null ? Collections.emptyList() : Collections.unmodifiableList(all);
+            List<List<AbstractPreference>> result = new ArrayList<>(TYPES.length);
+            for (int i = 0; i < TYPES.length; i++) {
+                result.add(new ArrayList<>());
+            }
+            for (AbstractPreference pref : this.all) {
+                for (int i = 0; i < TYPES.length; i++) {
+                    if (TYPES[i].isInstance(pref)) {
+                        result.get(i).add(pref);
+                        break;
+                    }
+                }
+            }
+            for (int i = 0; i < TYPES.length; i++) {
+                result.set(i, Collections.unmodifiableList(result.get(i)));
+            }
+            buckets = Collections.unmodifiableList(result);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.file;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.ameba.exception.IntegrationLayerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * A PreferencesLoader runs the loading of preferences into a {@link PreferenceIndex} either in the calling thread or in background and
+ * offers a readiness gate to wait for the result. Background loading is enabled with the property
+ * <i>openwms.core.config.async-loading</i>, callers wait at most <i>openwms.core.config.loading-timeout</i> milliseconds.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see XMLPreferenceDaoImpl
+ * @since 2.0
+ */
+@Component
+class PreferencesLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreferencesLoader.class);
+    @Autowired
+    @Qualifier("preferencesLoaderExecutor")
+    private TaskExecutor executor;
+    @Value("${openwms.core.config.async-loading:false}")
+    private boolean asyncLoading;
+    @Value("${openwms.core.config.loading-timeout:30000}")
+    private long loadingTimeout;
+    private volatile CompletableFuture<PreferenceIndex> loading = new CompletableFuture<>();
+
+    /**
+     * Start loading with the given {@code task}. In synchronous mode any exception of the task is rethrown to the caller, in asynchronous
+     * mode it is kept and rethrown to all waiting callers.
+     *
+     * @param task The task that does the actual loading
+     */
+    void load(Supplier<PreferenceIndex> task) {
+        CompletableFuture<PreferenceIndex> future = new CompletableFuture<>();
+        loading = future;
+        if (asyncLoading) {
+            LOGGER.debug("Loading preferences in background");
+            executor.execute(() -> {
+                try {
+                    future.complete(task.get());
+                } catch (RuntimeException ex) {
+                    LOGGER.error("Loading preferences in background failed: {}", ex.getMessage(), ex);
+                    future.completeExceptionally(ex);
+                }
+            });
+        } else {
+            try {
+                future.complete(task.get());
+            } catch (RuntimeException ex) {
+                future.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Wait until loading has finished and return the result.
+     *
+     * @return The loaded preferences
+     * @throws IntegrationLayerException when loading failed or did not finish in time
+     */
+    PreferenceIndex await() {
+        try {
+            return loading.get(loadingTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException te) {
+            throw new IntegrationLayerException("Preferences not loaded within " + loadingTimeout + " ms", te);
+        } catch (ExecutionException ee) {
+            throw new IntegrationLayerException("Exception while loading preferences", ee.getCause());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IntegrationLayerException("Interrupted while waiting for preferences", ie);
+        }
+    }
+
+    /**
+     * Check whether loading has finished, either successfully or not.
+     *
+     * @return {@literal true} if finished
+     */
+    boolean isDone() {
+        return loading.isDone();
+    }
+
+    /**
+     * Return the loaded preferences without waiting.
+     *
+     * @return The preferences or {@literal null} when loading is still in progress or failed
+     */
+    PreferenceIndex getNow() {
+        CompletableFuture<PreferenceIndex> current = loading;
+        return current.isDone() && !current.isCompletedExceptionally() ? current.join() : null;
+    }
+
+    /**
+     * Return the cause why loading failed.
+     *
+     * @return The cause or {@literal null} when loading is still in progress or succeeded
+     */
+    Throwable getFailure() {
+        CompletableFuture<PreferenceIndex> current = loading;
+        if (!current.isCompletedExceptionally()) {
+            return null;
+        }
+        try {
+            current.join();
+            return null;
+        } catch (RuntimeException ex) {
+            return ex.getCause() == null ? ex : ex.getCause();
+        }
+    }
+}
@@ -27,6 +27,7 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -51,7 +52,12 @@ import org.springframework.util.Assert;
 @Entity
 @Table(name = "COR_ROLE_PREFERENCE", uniqueConstraints = @UniqueConstraint(columnNames = {"C_TYPE", "C_OWNER", "C_KEY"}))
 @NamedQueries({
-        @NamedQuery(name = RolePreference.NQ_FIND_BY_OWNER, query = "select rp from RolePreference rp where rp.owner = :owner")})
+        @NamedQuery(name = RolePreference.NQ_FIND_BY_OWNER, query = "select rp from RolePreference rp where rp.owner = :owner",
+                hints = {@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                        @QueryHint(name = "org.hibernate.cacheRegion", value = AbstractPreference.QUERY_CACHE_REGION)}),
+        @NamedQuery(name = RolePreference.NQ_FIND_BY_OWNERS, query = "select rp from RolePreference rp where rp.owner in :owners"),
+        @NamedQuery(name = RolePreference.NQ_FIND_BY_KEY,
+                query = "select rp from RolePreference rp where rp.owner = :owner and rp.key = :key")})
 public class RolePreference extends AbstractPreference implements Serializable {
 
     /**
@@ -80,6 +86,19 @@ public class RolePreference extends AbstractPreference implements Serializable {
      */
     public static final String NQ_FIND_BY_OWNER = "RolePreference" + FIND_BY_OWNER;
 
+    /**
+     * Query to find <strong>all</strong> {@code RolePreference}s of several {@code Role}s.
+     * <li>Query parameter name <strong>owners</strong> : A collection of owner names to search for.</li><br /> Name is {@value} .
+     */
+    public static final String NQ_FIND_BY_OWNERS = "RolePreference" + FIND_BY_OWNERS;
+
+    /**
+     * Query to find the {@code RolePreference} of a {@code Role} with a particular key.
+     * <li>Query parameter name <strong>owner</strong> : The name of the owner.</li>
+     * <li>Query parameter name <strong>key</strong> : The key of the preference.</li><br /> Name is {@value} .
+     */
+    public static final String NQ_FIND_BY_KEY = "RolePreference" + FIND_BY_KEY;
+
     /**
      * Create a new RolePreference. Defined for the JAXB implementation.
      */
@@ -108,6 +127,7 @@ public class RolePreference extends AbstractPreference implements Serializable {
      *
      * @return the key.
      */
+    @Override
     public String getKey() {
         return key;
     }
@@ -117,6 +137,7 @@ public class RolePreference extends AbstractPreference implements Serializable {
      *
      * @return the rolename.
      */
+    @Override
     public String getOwner() {
         return owner;
     }
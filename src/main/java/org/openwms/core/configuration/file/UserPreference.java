@@ -27,6 +27,7 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -51,7 +52,12 @@ import org.springframework.util.Assert;
 @Entity
 @Table(name = "COR_USER_PREFERENCE", uniqueConstraints = @UniqueConstraint(columnNames = {"C_TYPE", "C_OWNER", "C_KEY"}))
 @NamedQueries({
-        @NamedQuery(name = UserPreference.NQ_FIND_BY_OWNER, query = "select up from UserPreference up where up.owner = :owner") })
+        @NamedQuery(name = UserPreference.NQ_FIND_BY_OWNER, query = "select up from UserPreference up where up.owner = :owner",
+                hints = {@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+                        @QueryHint(name = "org.hibernate.cacheRegion", value = AbstractPreference.QUERY_CACHE_REGION)}),
+        @NamedQuery(name = UserPreference.NQ_FIND_BY_OWNERS, query = "select up from UserPreference up where up.owner in :owners"),
+        @NamedQuery(name = UserPreference.NQ_FIND_BY_KEY,
+                query = "select up from UserPreference up where up.owner = :owner and up.key = :key")})
 public class UserPreference extends AbstractPreference implements Serializable {
 
     /** Type of this preference. */
@@ -77,6 +83,19 @@ public class UserPreference extends AbstractPreference implements Serializable {
      */
     public static final String NQ_FIND_BY_OWNER = "UserPreference" + FIND_BY_OWNER;
 
+    /**
+     * Query to find <strong>all</strong> {@code UserPreference}s of several {@code User}s.
+     * <li>Query parameter name <strong>owners</strong> : A collection of owner names to search for.</li><br /> Name is {@value} .
+     */
+    public static final String NQ_FIND_BY_OWNERS = "UserPreference" + FIND_BY_OWNERS;
+
+    /**
+     * Query to find the {@code UserPreference} of a {@code User} with a particular key.
+     * <li>Query parameter name <strong>owner</strong> : The name of the owner.</li>
+     * <li>Query parameter name <strong>key</strong> : The key of the preference.</li><br /> Name is {@value} .
+     */
+    public static final String NQ_FIND_BY_KEY = "UserPreference" + FIND_BY_KEY;
+
     /** Create a new UserPreference. Defined for the JAXB implementation. */
     public UserPreference() {
         super();
@@ -103,6 +122,7 @@ public class UserPreference extends AbstractPreference implements Serializable {
      *
      * @return the owner.
      */
+    @Override
     public String getOwner() {
         return owner;
     }
@@ -112,6 +132,7 @@ public class UserPreference extends AbstractPreference implements Serializable {
      *
      * @return the key.
      */
+    @Override
     public String getKey() {
         return key;
     }
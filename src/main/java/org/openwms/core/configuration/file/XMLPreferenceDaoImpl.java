@@ -24,14 +24,12 @@ package org.openwms.core.configuration.file;
 import javax.annotation.PostConstruct;
 import javax.xml.transform.stream.StreamSource;
 import java.io.IOException;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.ameba.exception.IntegrationLayerException;
+import org.openwms.core.configuration.PreferenceMetrics;
+import org.openwms.core.configuration.PropertyScope;
 import org.openwms.core.event.ReloadFilePreferencesEvent;
-import org.openwms.core.exception.NoUniqueResultException;
 import org.openwms.core.exception.ResourceNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,9 +45,10 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
- * A XMLPreferenceDaoImpl reads a XML file of preferences and keeps them internally in a Map. An initial preferences file can be configured
- * with a property <i>openwms.core.config.initial-properties</i> in the application.properties file. <p> On a {@link
- * ReloadFilePreferencesEvent} the internal Map is cleared and reloaded. </p>
+ * A XMLPreferenceDaoImpl reads a XML file of preferences and keeps them internally in a {@link PreferenceIndex}. An initial preferences
+ * file can be configured with a property <i>openwms.core.config.initial-properties</i> in the application.properties file. <p> On a {@link
+ * ReloadFilePreferencesEvent} the internal index is rebuilt. </p> <p> Loading is delegated to a {@link PreferencesLoader} and
+ * may happen in background, hence callers of {@link #findAll()} wait until the file has been loaded. </p>
  *
  * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
  * @version 0.2
@@ -65,11 +64,13 @@ class XMLPreferenceDaoImpl implements PreferenceDao, ApplicationListener<ReloadF
     private ApplicationContext ctx;
     @Autowired
     private Unmarshaller unmarshaller;
+    @Autowired
+    private PreferencesLoader loader;
+    @Autowired(required = false)
+    private PreferenceMetrics metrics = PreferenceMetrics.NOOP;
     @Value("${openwms.core.config.initial-properties:}")
     private String fileName;
     private volatile Resource fileResource;
-    private volatile Preferences preferences;
-    private Map<PreferenceKey, AbstractPreference> prefs = new ConcurrentHashMap<>();
 
     /**
      * {@inheritDoc}
@@ -78,7 +79,7 @@ class XMLPreferenceDaoImpl implements PreferenceDao, ApplicationListener<ReloadF
      */
     @Override
     public List<AbstractPreference> findAll() {
-        return preferences == null ? Collections.emptyList() : preferences.getAll();
+        return loader.await().findAll();
     }
 
     /**
@@ -92,25 +93,29 @@ class XMLPreferenceDaoImpl implements PreferenceDao, ApplicationListener<ReloadF
     }
 
     /**
-     * On bean initialization load all preferences into a Map.
+     * On bean initialization load all preferences into an index.
      */
     @PostConstruct
     private void loadResources() {
-        if (initialPropertiesExist()) {
-            try {
-                preferences = (Preferences) unmarshaller.unmarshal(new StreamSource(fileResource.getInputStream()));
-                for (AbstractPreference pref : preferences.getAll()) {
-                    if (prefs.containsKey(pref.getPrefKey())) {
-                        throw new NoUniqueResultException("Preference with key " + pref.getPrefKey() + " already loaded.");
-                    }
-                    prefs.put(pref.getPrefKey(), pref);
-                }
-                LOGGER.debug("Loaded {} properties into cache", preferences.getAll().size());
-            } catch (XmlMappingException xme) {
-                throw new IntegrationLayerException("Exception while unmarshalling from " + fileName, xme);
-            } catch (IOException ioe) {
-                throw new ResourceNotFoundException("Exception while accessing the resource with name " + fileName, ioe);
+        loader.load(() -> metrics.fileLoad().record(this::readPreferences));
+    }
+
+    private PreferenceIndex readPreferences() {
+        if (!initialPropertiesExist()) {
+            return PreferenceIndex.empty();
+        }
+        try {
+            Preferences preferences = (Preferences) unmarshaller.unmarshal(new StreamSource(fileResource.getInputStream()));
+            PreferenceIndex index = PreferenceIndex.of(preferences.getAll());
+            for (PropertyScope scope : PropertyScope.values()) {
+                metrics.fileLoaded(scope).increment(index.findByScope(scope).size());
             }
+            LOGGER.debug("Loaded {} properties into cache", index.size());
+            return index;
+        } catch (XmlMappingException xme) {
+            throw new IntegrationLayerException("Exception while unmarshalling from " + fileName, xme);
+        } catch (IOException ioe) {
+            throw new ResourceNotFoundException("Exception while accessing the resource with name " + fileName, ioe);
         }
     }
 
@@ -126,8 +131,6 @@ class XMLPreferenceDaoImpl implements PreferenceDao, ApplicationListener<ReloadF
     }
 
     private void reloadResources() {
-        preferences = null;
-        prefs.clear();
         loadResources();
     }
 }
\ No newline at end of file
@@ -107,17 +107,23 @@ public class Module extends BaseEntity implements Serializable {
     public static class ModuleComparator implements Comparator<Module>, Serializable {
 
         private static final long serialVersionUID = 8749015473190257293L;
+        private static final Comparator<String> MODULE_NAME_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
 
         /**
          * {@inheritDoc}
          * 
-         * Return 1 when the startupOrder of o1 is greater or equals than the startupOrder of o2, -1 when it is less.
+         * Order by startupOrder, {@code Module}s with the same startupOrder are ordered by their moduleName. Returns 0 only for
+         * {@code Module}s with the same startupOrder and moduleName, so the order is consistent with the unique moduleName.
          * 
          * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
          */
         @Override
         public int compare(Module o1, Module o2) {
-            return o1.getStartupOrder() >= o2.getStartupOrder() ? 1 : -1;
+            int result = Integer.compare(o1.getStartupOrder(), o2.getStartupOrder());
+            if (result != 0) {
+                return result;
+            }
+            return MODULE_NAME_ORDER.compare(o1.getModuleName(), o2.getModuleName());
         }
     };
 
@@ -21,7 +21,12 @@
  */
 package org.openwms.core.module;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * A ModuleDao adds particular functionality regarding {@link Module} entity classes.
@@ -30,6 +35,22 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * @version 0.2
  * @since 0.1
  */
-interface ModuleDao extends JpaRepository<Module, Long> {
+interface ModuleDao extends JpaRepository<Module, Long>, ModuleDaoCustom {
+
+    /**
+     * Find the highest {@code startupOrder} of all {@link Module}s.
+     *
+     * @return The highest startupOrder or {@literal null} if no {@link Module} exists
+     */
+    @Query("select max(m.startupOrder) from Module m")
+    Integer findMaxStartupOrder();
 
-}
\ No newline at end of file
+    /**
+     * Find which of the given identifiers belong to existing {@link Module}s.
+     *
+     * @param pks The identifiers to look for
+     * @return The identifiers of existing {@link Module}s, never {@literal null}
+     */
+    @Query("select m.pk from Module m where m.pk in :pks")
+    List<Long> findExistingPks(@Param("pks") Collection<Long> pks);
+}
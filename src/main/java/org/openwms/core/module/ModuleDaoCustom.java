@@ -0,0 +1,43 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.module;
+
+import java.util.Map;
+
+/**
+ * A ModuleDaoCustom defines updates of {@link Module}s that are composed at runtime.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+interface ModuleDaoCustom {
+
+    /**
+     * Set the {@code startupOrder} of all given {@link Module}s with one bulk UPDATE. {@link Module}s that are already loaded into the
+     * persistence context are not refreshed.
+     *
+     * @param startupOrders The new startupOrder mapped to the identifier of each {@link Module}
+     * @return The number of updated {@link Module}s
+     */
+    int updateStartupOrders(Map<Long, Integer> startupOrders);
+}
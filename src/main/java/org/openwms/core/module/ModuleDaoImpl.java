@@ -0,0 +1,60 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.module;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Map;
+
+/**
+ * A ModuleDaoImpl builds the bulk update of startup orders as one {@code CASE} expression over the identifiers.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @see ModuleDao
+ * @since 2.0
+ */
+class ModuleDaoImpl implements ModuleDaoCustom {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Identifiers and startup orders are numbers and written into the statement as literals, only the list of identifiers is bound. The
+     * bulk update bypasses the persistence context, so the optimistic locking version is incremented explicitly to let concurrent
+     * writers of the same Modules fail.
+     */
+    @Override
+    public int updateStartupOrders(Map<Long, Integer> startupOrders) {
+        if (startupOrders.isEmpty()) {
+            return 0;
+        }
+        StringBuilder jpql = new StringBuilder("update Module m set m.startupOrder = case m.pk");
+        for (Map.Entry<Long, Integer> startupOrder : startupOrders.entrySet()) {
+            jpql.append(" when ").append(startupOrder.getKey().longValue()).append(" then ").append(startupOrder.getValue().intValue());
+        }
+        jpql.append(" else m.startupOrder end, m.ol = m.ol + 1 where m.pk in :ids");
+        return em.createQuery(jpql.toString()).setParameter("ids", startupOrders.keySet()).executeUpdate();
+    }
+}
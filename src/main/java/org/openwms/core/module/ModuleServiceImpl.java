@@ -23,7 +23,11 @@ package org.openwms.core.module;
 
 import javax.validation.constraints.NotNull;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.ameba.annotation.TxService;
 import org.ameba.exception.NotFoundException;
@@ -48,21 +52,26 @@ class ModuleServiceImpl implements ModuleService {
     /**
      * {@inheritDoc}
      * <p>
-     * It is expected that the list of {@link Module}s is already ordered by their startup order. Each {@link Module}'s
-     * {@code startupOrder} is synchronized with the persistence storage.
+     * It is expected that the list of {@link Module}s is already ordered by their startup order. The {@code startupOrder} of all {@link
+     * Module}s is set with one bulk UPDATE, without loading them. If one of the {@link Module}s does not exist the exception rolls back the
+     * transaction, so nothing is changed.
      *
-     * @throws org.ameba.exception.ServiceLayerException when {@code modules} is {@literal null}
+     * @throws org.ameba.exception.ServiceLayerException when {@code modules} is {@literal null} or one of the {@code modules} has not been
+     * persisted before
+     * @throws NotFoundException when one of the {@code modules} does not exist
      */
     @Override
     public void saveStartupOrder(List<Module> modules) {
         Assert.notEmpty(modules, ExceptionCodes.MODULE_SAVE_STARTUP_ORDER_NOT_BE_NULL);
+        Map<Long, Integer> startupOrders = new LinkedHashMap<>(modules.size() * 4 / 3 + 1);
         for (Module module : modules) {
-            Module toSave = moduleDao.findOne(module.getPk());
-            if (toSave == null) {
-                throw new NotFoundException(String.format("Module with if [%s] not found", module.getPk()));
-            }
-            toSave.setStartupOrder(module.getStartupOrder());
-            save(toSave);
+            Assert.notNull(module.getPk(), "Not allowed to save the startup order of a Module that has not been persisted before");
+            startupOrders.put(module.getPk(), module.getStartupOrder());
+        }
+        if (moduleDao.updateStartupOrders(startupOrders) != startupOrders.size()) {
+            Set<Long> missing = new LinkedHashSet<>(startupOrders.keySet());
+            missing.removeAll(moduleDao.findExistingPks(startupOrders.keySet()));
+            throw new NotFoundException(String.format("Modules with ids %s not found", missing));
         }
     }
 
@@ -78,7 +87,8 @@ class ModuleServiceImpl implements ModuleService {
     /**
      * {@inheritDoc}
      * <p>
-     * Additionally the {@code startupOrder} is re-calculated for the new {@link Module}.
+     * Additionally the {@code startupOrder} of a new {@link Module} is set to follow the highest existing one, which is queried as an
+     * aggregate instead of loading all {@link Module}s.
      *
      * @throws org.ameba.exception.ServiceLayerException when {@code module} is {@literal null}
      */
@@ -86,10 +96,9 @@ class ModuleServiceImpl implements ModuleService {
     public Module save(Module module) {
         Assert.notNull(module, ExceptionCodes.MODULE_SAVE_NOT_BE_NULL);
         if (module.isNew()) {
-            List<Module> all = findAll();
-            if (!all.isEmpty()) {
-                Collections.sort(all, new Module.ModuleComparator());
-                module.setStartupOrder(all.get(all.size() - 1).getStartupOrder() + 1);
+            Integer maxStartupOrder = moduleDao.findMaxStartupOrder();
+            if (maxStartupOrder != null) {
+                module.setStartupOrder(maxStartupOrder + 1);
             }
         }
         return moduleDao.save(module);
@@ -0,0 +1,150 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.app;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openwms.core.configuration.ConfigurationService;
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.openwms.core.configuration.file.ApplicationPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * A ReplicaRoutingIT runs with two local H2 databases, the replica gets the schema of the primary but no replicated data, so every read
+ * tells which database it has been served by. Blocking handlers of the API run asynchronously.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "openwms.core.config.initial-properties=",
+        "spring.datasource.url=" + ReplicaRoutingIT.PRIMARY_URL,
+        "openwms.core.config.replica.url=" + ReplicaRoutingIT.REPLICA_URL,
+        "openwms.core.config.replica.username=sa",
+        "openwms.core.config.async-requests=true"})
+@AutoConfigureMockMvc
+public class ReplicaRoutingIT {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:preferences-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:preferences-replica;DB_CLOSE_DELAY=-1";
+    private static boolean replicaInitialized;
+    @Autowired
+    private ConfigurationService configurationService;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Before
+    public void onBefore() {
+        if (!replicaInitialized) {
+            JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+            JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+            for (String statement : primary.queryForList("SCRIPT NODATA", String.class)) {
+                if (!statement.startsWith("--")) {
+                    replica.execute(statement);
+                }
+            }
+            replicaInitialized = true;
+        }
+    }
+
+    @After
+    public void onAfter() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * Writes go to the primary, reads outside of any HTTP session to the replica.
+     */
+    @Test
+    public final void testReadsFromReplica() {
+        save("replica.routing.anonymous");
+
+        assertThat(configurationService.findAll()).extracting(AbstractPreference::getKey).doesNotContain("replica.routing.anonymous");
+    }
+
+    /**
+     * The session that has written reads from the primary, another session still from the replica.
+     */
+    @Test
+    public final void testReadYourWrites() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        save("replica.routing.session");
+
+        assertThat(configurationService.findAll()).extracting(AbstractPreference::getKey).contains("replica.routing.session");
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(configurationService.findAll()).extracting(AbstractPreference::getKey).doesNotContain("replica.routing.session");
+    }
+
+    /**
+     * A client without session writes through an asynchronously executed handler, the write is remembered in a session that is created
+     * before the servlet thread is released, and later reads of that session go to the primary.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testReadYourWritesInAsyncMode() throws Exception {
+        save("replica.routing.async");
+        MvcResult result = mockMvc.perform(patch("/v1/preferences/APPLICATION/replica.routing.async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"value\":\"changed\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        MockHttpSession session = (MockHttpSession) result.getRequest().getSession(false);
+        assertThat(session).isNotNull();
+        assertThat(session.getAttribute(ReadYourWritesGuard.ATTRIBUTE)).isNotNull();
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setSession(session);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(next));
+        assertThat(configurationService.findAll()).extracting(AbstractPreference::getValue).contains("changed");
+    }
+
+    private void save(String key) {
+        ApplicationPreference preference = new ApplicationPreference(key);
+        preference.setValue("value");
+        configurationService.save(preference);
+    }
+}
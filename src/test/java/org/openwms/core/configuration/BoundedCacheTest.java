@@ -0,0 +1,113 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * A BoundedCacheTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class BoundedCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final BoundedCache<String, String> cache = new BoundedCache<>(2, 1000, now::get);
+
+    /**
+     * When the cache is full the least recently read entry is evicted.
+     */
+    @Test
+    public final void testLeastRecentlyUsed() {
+        cache.put("A", "1");
+        cache.put("B", "2");
+        assertThat(cache.get("A")).isEqualTo("1");
+
+        cache.put("C", "3");
+
+        assertThat(cache.get("B")).isNull();
+        assertThat(cache.get("A")).isEqualTo("1");
+        assertThat(cache.get("C")).isEqualTo("3");
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    /**
+     * Entries that have not been used within the idle timeout expire, each read extends the lifetime.
+     */
+    @Test
+    public final void testIdleTimeout() {
+        cache.put("A", "1");
+        cache.put("B", "2");
+        advance(600);
+        assertThat(cache.get("A")).isEqualTo("1");
+        advance(600);
+
+        assertThat(cache.get("B")).isNull();
+        assertThat(cache.get("A")).isEqualTo("1");
+        advance(1001);
+        cache.put("C", "3");
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.getEvictions()).isEqualTo(2);
+    }
+
+    /**
+     * Peeking does not extend the lifetime nor change the order of eviction.
+     */
+    @Test
+    public final void testPeek() {
+        cache.put("A", "1");
+        cache.put("B", "2");
+        assertThat(cache.peek("A")).isEqualTo("1");
+
+        cache.put("C", "3");
+
+        assertThat(cache.peek("A")).isNull();
+        advance(1001);
+        assertThat(cache.peek("B")).isNull();
+    }
+
+    /**
+     * Conditional operations respect the current value.
+     */
+    @Test
+    public final void testConditionalOperations() {
+        assertThat(cache.putIfAbsent("A", "1")).isNull();
+        assertThat(cache.putIfAbsent("A", "2")).isEqualTo("1");
+        cache.remove("A", "2");
+        assertThat(cache.get("A")).isEqualTo("1");
+        cache.put("B", "2");
+        cache.removeIf("1"::equals);
+        assertThat(cache.get("A")).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.openwms.core.event.ConfigurationChangedEvent;
+import org.openwms.core.test.AbstractMockitoTests;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * A ConfigurationEventDispatcherTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class ConfigurationEventDispatcherTest extends AbstractMockitoTests {
+
+    private List<Runnable> tasks = new ArrayList<>();
+    @Mock
+    private ApplicationEventPublisher publisher;
+    @InjectMocks
+    private ConfigurationEventDispatcher dispatcher = new ConfigurationEventDispatcher();
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * Collect the dispatching tasks instead of running them, so the tests control when listeners are called.
+     */
+    @Override
+    protected void doBefore() {
+        ReflectionTestUtils.setField(dispatcher, "executor", (TaskExecutor) tasks::add);
+        ReflectionTestUtils.setField(dispatcher, "async", true);
+        ReflectionTestUtils.setField(dispatcher, "capacity", 1);
+        dispatcher.init();
+        dispatcher.bindTo(registry);
+    }
+
+    /**
+     * Pending events of the same preference are coalesced into the latest one and not dispatched by the writer.
+     */
+    @Test
+    public final void testCoalescing() {
+        PreferenceVO first = new PreferenceVO(PropertyScope.USER, "USER1", "ui.grid.orders.width", "100", null, 0, 0, null, 1);
+        PreferenceVO last = new PreferenceVO(PropertyScope.USER, "USER1", "ui.grid.orders.width", "300", null, 0, 0, null, 3);
+        dispatcher.dispatch(first);
+        dispatcher.dispatch(last);
+        verify(publisher, never()).publishEvent(any(ConfigurationChangedEvent.class));
+        assertThat(metric("preferences.events.queue-depth")).isEqualTo(1D);
+        assertThat(metric("preferences.events.coalesced")).isEqualTo(1D);
+
+        tasks.forEach(Runnable::run);
+
+        ArgumentCaptor<ConfigurationChangedEvent> captor = ArgumentCaptor.forClass(ConfigurationChangedEvent.class);
+        verify(publisher, times(1)).publishEvent(captor.capture());
+        assertThat(captor.getValue().getSource()).isSameAs(last);
+        assertThat(metric("preferences.events.queue-depth")).isEqualTo(0D);
+    }
+
+    /**
+     * When the queue is full the writer dispatches the event itself.
+     */
+    @Test
+    public final void testQueueFull() {
+        dispatcher.dispatch(new PreferenceVO(PropertyScope.USER, "USER1", "key1", "v", null, 0, 0, null));
+        dispatcher.dispatch(new PreferenceVO(PropertyScope.USER, "USER1", "key2", "v", null, 0, 0, null));
+
+        verify(publisher, times(1)).publishEvent(any(ConfigurationChangedEvent.class));
+        assertThat(metric("preferences.events.rejected")).isEqualTo(1D);
+    }
+
+    /**
+     * Writers that concurrently change the same preference while the queue is full dispatch their events themselves, none of them is lost
+     * as coalesced and the preference is queued again as soon as there is room.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testConcurrentWritersWithFullQueue() throws Exception {
+        dispatcher.dispatch(new PreferenceVO(PropertyScope.USER, "USER1", "blocker", "v", null, 0, 0, null));
+        int writers = 8;
+        int changes = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < changes; i++) {
+                    dispatcher.dispatch(new PreferenceVO(PropertyScope.USER, "USER1", "hot", "v", null, 0, 0, null, writer * changes + i));
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(metric("preferences.events.coalesced")).isEqualTo(0D);
+        assertThat(metric("preferences.events.rejected")).isEqualTo((double) writers * changes);
+        verify(publisher, times(writers * changes)).publishEvent(any(ConfigurationChangedEvent.class));
+
+        new ArrayList<>(tasks).forEach(Runnable::run);
+        PreferenceVO last = new PreferenceVO(PropertyScope.USER, "USER1", "hot", "last", null, 0, 0, null, writers * changes);
+        dispatcher.dispatch(last);
+        assertThat(metric("preferences.events.queue-depth")).isEqualTo(1D);
+        new ArrayList<>(tasks).subList(1, tasks.size()).forEach(Runnable::run);
+
+        ArgumentCaptor<ConfigurationChangedEvent> captor = ArgumentCaptor.forClass(ConfigurationChangedEvent.class);
+        verify(publisher, times(writers * changes + 2)).publishEvent(captor.capture());
+        assertThat(captor.getValue().getSource()).isSameAs(last);
+    }
+
+    private double metric(String name) {
+        return registry.find(name).meter().measure().iterator().next().getValue();
+    }
+}
@@ -21,12 +21,16 @@
  */
 package org.openwms.core.configuration;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
 import javax.validation.ConstraintViolationException;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.openwms.core.configuration.file.UserPreference;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
@@ -46,6 +50,8 @@ public class ConfigurationServiceIT {
 
     @Autowired
     private ConfigurationService srv;
+    @Autowired
+    private FlatPreferenceRepository flatPreferenceRepository;
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
@@ -54,4 +60,22 @@ public class ConfigurationServiceIT {
         thrown.expect(ConstraintViolationException.class);
         srv.delete(null);
     }
+
+    /**
+     * A bulk update increments the version of the preference and of the read model, both stay in sync.
+     */
+    @Test
+    public final void testUpdateValue() {
+        UserPreference preference = new UserPreference("IT_UPDATE", "ui.theme");
+        preference.setValue("light");
+        srv.save(preference);
+
+        PreferenceVO updated = srv.updateValue(PropertyScope.USER, "IT_UPDATE", "ui.theme", "dark");
+
+        assertThat(updated.getValue()).isEqualTo("dark");
+        assertThat(updated.getVersion()).isEqualTo(1);
+        assertThat(srv.findByType(UserPreference.class, "IT_UPDATE"))
+                .extracting("value", "version").containsExactly(tuple("dark", 1L));
+        assertThat(flatPreferenceRepository.findVOByKey(PropertyScope.USER, "IT_UPDATE", "ui.theme").getVersion()).isEqualTo(1);
+    }
 }
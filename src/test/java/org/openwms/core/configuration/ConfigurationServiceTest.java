@@ -22,6 +22,7 @@
 package org.openwms.core.configuration;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
@@ -29,23 +30,33 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import org.ameba.exception.NotFoundException;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.openwms.core.configuration.file.AbstractPreference;
 import org.openwms.core.configuration.file.ApplicationPreference;
 import org.openwms.core.configuration.file.MockApplicationPreference;
 import org.openwms.core.configuration.file.ModulePreference;
 import org.openwms.core.configuration.file.PreferenceDao;
+import org.openwms.core.configuration.file.UserPreference;
 import org.openwms.core.event.MergePropertiesEvent;
 import org.openwms.core.test.AbstractMockitoTests;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 /**
  * A ConfigurationServiceTest.
@@ -65,6 +76,24 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
     private PreferenceRepository writer;
     @Mock
     private PreferenceDao reader;
+    @Mock
+    private FlatPreferenceRepository flatReader;
+    @Mock
+    private PreferenceReadModel readModel;
+    @Mock
+    private UserPreferenceCache userPreferenceCache;
+    @Mock
+    private PreferenceKeyIndex keyIndex;
+    @Spy
+    private ReactivePreferenceRepository reactiveRepository = new InMemoryReactivePreferenceRepository(Arrays.asList(
+            new PreferenceVO(PropertyScope.USER, "USER1", "ui.theme", "dark", null, 0, 0, null),
+            new PreferenceVO(PropertyScope.USER, "USER2", "ui.theme", "light", null, 0, 0, null)));
+    @Spy
+    private UserPreferenceWriteBehind writeBehind = new UserPreferenceWriteBehind();
+    @Mock
+    private ConfigurationEventDispatcher eventDispatcher;
+    @Mock
+    private PreferenceChangeLog changeLog;
     @InjectMocks
     private ConfigurationServiceImpl srv = new ConfigurationServiceImpl();
     @Rule
@@ -75,6 +104,7 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
      */
     @Override
     protected void doBefore() {
+        ReflectionTestUtils.setField(srv, "metrics", PreferenceMetrics.NOOP);
         // Prepare some preferences coming from a file
         filePrefs.add(new ApplicationPreference("filePref1"));
         filePrefs.add(new ApplicationPreference("filePref2"));
@@ -93,6 +123,10 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
         persistedPrefs.clear();
         reset(writer);
         reset(reader);
+        reset(flatReader);
+        reset(readModel);
+        reset(userPreferenceCache);
+        reset(keyIndex);
     }
 
     /**
@@ -105,14 +139,14 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
         // That one must not be persisted
         filePrefs.add(new ApplicationPreference(PERSISTED_APP_PREF2));
         when(reader.findAll()).thenReturn(filePrefs);
-        when(writer.findAll()).thenReturn(persistedPrefs);
+        when(writer.findAllPreferences()).thenReturn(persistedPrefs);
 
         srv.onApplicationEvent(new MergePropertiesEvent(this));
         // new file preferences should be saved
-        verify(writer).save(new ApplicationPreference("filePref1"));
-        verify(writer).save(new ApplicationPreference("filePref2"));
+        verify(writer).store(new ApplicationPreference("filePref1"));
+        verify(writer).store(new ApplicationPreference("filePref2"));
         // save must not be called for an already existing preference.
-        verify(writer, never()).save(new ApplicationPreference(PERSISTED_APP_PREF2));
+        verify(writer, never()).store(new ApplicationPreference(PERSISTED_APP_PREF2));
     }
 
     /**
@@ -122,9 +156,9 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
      */
     @Test
     public final void testFindAll() {
-        when(writer.findAll()).thenReturn(persistedPrefs);
+        when(writer.findAllPreferences()).thenReturn(persistedPrefs);
         assertEquals(persistedPrefs, srv.findAll());
-        verify(writer, times(1)).findAll();
+        verify(writer, times(1)).findAllPreferences();
     }
 
     /**
@@ -141,6 +175,97 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
         Assert.assertTrue(prefs.size() == 1);
     }
 
+    /**
+     * Test method for {@link org.openwms.core.configuration.ConfigurationServiceImpl#list(PropertyScope, String)}.
+     * <p>
+     * Without an owner all preferences of the scope are read from the read model.
+     */
+    @Test
+    public final void testListByScope() {
+        srv.list(PropertyScope.MODULE, null);
+        verify(flatReader).findVOsByType(PropertyScope.MODULE);
+        srv.list(PropertyScope.MODULE, "CORE");
+        verify(flatReader).findVOsByTypeAndOwner(PropertyScope.MODULE, "CORE");
+    }
+
+    /**
+     * Test method for {@link org.openwms.core.configuration.ConfigurationServiceImpl#findByType(Class, Collection)}.
+     * <p>
+     * All owners are fetched with one lookup and each requested owner gets an entry, even without any preference.
+     */
+    @Test
+    public final void testFindByOwners() {
+        List<String> owners = Arrays.asList("CORE", "TMS", "WMS");
+        when(writer.findByType(ModulePreference.class, owners)).thenReturn(
+                Arrays.asList(new ModulePreference("CORE", "k1"), new ModulePreference("WMS", "k1"), new ModulePreference("CORE", "k2")));
+
+        Map<String, List<ModulePreference>> result = srv.findByType(ModulePreference.class, owners);
+
+        verify(writer, times(1)).findByType(ModulePreference.class, owners);
+        assertEquals(owners, new ArrayList<>(result.keySet()));
+        assertEquals(2, result.get("CORE").size());
+        assertEquals(0, result.get("TMS").size());
+        assertEquals(1, result.get("WMS").size());
+    }
+
+    /**
+     * Test method for {@link org.openwms.core.configuration.ConfigurationServiceImpl#list(PropertyScope, String)}.
+     * <p>
+     * A prewarmed user must be served without querying the read model.
+     */
+    @Test
+    public final void testListPrewarmedUser() {
+        List<PreferenceVO> prewarmed = Collections.singletonList(
+                new PreferenceVO(PropertyScope.USER, "USER1", "key", "value", null, 0, 0, null));
+        when(userPreferenceCache.getUserPreferences("USER1")).thenReturn(prewarmed);
+
+        assertEquals(prewarmed, srv.list(PropertyScope.USER, "USER1"));
+        verify(flatReader, never()).findVOsByTypeAndOwner(PropertyScope.USER, "USER1");
+    }
+
+    /**
+     * Filters and selected fields are passed to the read model, all fields are read if none is selected.
+     */
+    @Test
+    public final void testListWithFilters() {
+        List<PreferenceVO> found = Collections.singletonList(new PreferenceVO(null, null, "ui.grid.width", "100", null, 0, 0, null));
+        when(flatReader.findVOs(PropertyScope.USER, "USER1", "ui.", EnumSet.of(PreferenceField.KEY, PreferenceField.VALUE)))
+                .thenReturn(found);
+
+        assertEquals(found, srv.list(PropertyScope.USER, "USER1", "ui.", EnumSet.of(PreferenceField.KEY, PreferenceField.VALUE)));
+        srv.list(null, null, null, Collections.emptySet());
+        verify(flatReader).findVOs(null, null, null, EnumSet.allOf(PreferenceField.class));
+    }
+
+    /**
+     * Reactive reads are filtered by scope and owner.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testListReactive() throws Exception {
+        assertEquals(2, InMemoryReactivePreferenceRepository.collect(srv.listReactive()).size());
+        List<PreferenceVO> found = InMemoryReactivePreferenceRepository.collect(srv.listReactive(PropertyScope.USER, "USER2"));
+        assertEquals(1, found.size());
+        assertEquals("light", found.get(0).getValue());
+    }
+
+    /**
+     * Prefix queries of an owner are served by the key index, without an owner or if the index is full they are queried and sorted by key.
+     */
+    @Test
+    public final void testListByKeyPrefix() {
+        PreferenceVO width = new PreferenceVO(PropertyScope.USER, "USER1", "ui.grid.orders.width", "100", null, 0, 0, null);
+        PreferenceVO height = new PreferenceVO(PropertyScope.USER, "USER2", "ui.grid.orders.height", "50", null, 0, 0, null);
+        when(keyIndex.findByKeyPrefix(PropertyScope.USER, "USER1", "ui.grid.")).thenReturn(Collections.singletonList(width));
+        when(flatReader.findVOs(PropertyScope.USER, null, "ui.grid.", EnumSet.allOf(PreferenceField.class)))
+                .thenReturn(Arrays.asList(width, height));
+
+        assertEquals(Collections.singletonList(width), srv.listByKeyPrefix(PropertyScope.USER, "USER1", "ui.grid."));
+        assertEquals(Arrays.asList(height, width), srv.listByKeyPrefix(PropertyScope.USER, "", "ui.grid."));
+        verify(keyIndex, never()).findByKeyPrefix(PropertyScope.USER, null, "ui.grid.");
+    }
+
     /**
      * Test method for {@link org.openwms.core.configuration.ConfigurationServiceImpl#save(AbstractPreference)}.
      * <p>
@@ -161,8 +286,11 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
                 Collections.singletonList(new ApplicationPreference("PERSISTED")));
 
         ApplicationPreference newEntity = new ApplicationPreference("TRANSIENT");
+        when(writer.store(newEntity)).thenReturn(newEntity);
         srv.save(newEntity);
-        verify(writer).save(newEntity);
+        verify(writer).store(newEntity);
+        verify(readModel).save(newEntity);
+        verify(eventDispatcher).fireAfterCommit(PreferenceVO.of(newEntity));
     }
 
     /**
@@ -175,7 +303,7 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
 
         ApplicationPreference newEntity = new ApplicationPreference("TRANSIENT");
         srv.save(newEntity);
-        verify(writer).save(newEntity);
+        verify(writer).store(newEntity);
     }
 
     /**
@@ -186,10 +314,93 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
         MockApplicationPreference mock = new MockApplicationPreference("TRANSIENT");
         when(writer.findByType(MockApplicationPreference.class)).thenReturn(
                 Collections.singletonList(mock));
-        when(writer.save(mock)).thenReturn(mock);
+        when(writer.store(mock)).thenReturn(mock);
 
         assertEquals(mock, srv.save(mock));
-        verify(writer).save(mock);
+        verify(writer).store(mock);
+    }
+
+    /**
+     * Test method for {@link org.openwms.core.configuration.ConfigurationServiceImpl#compareAndSet(PreferenceVO)}.
+     * <p>
+     * Matching version updates the values of the persisted preference.
+     */
+    @Test
+    public final void testCompareAndSet() {
+        ModulePreference persisted = new ModulePreference("CORE", "key");
+        when(writer.findByKey(ModulePreference.class, "CORE", "key")).thenReturn(Optional.of(persisted));
+        when(writer.store(persisted)).thenReturn(persisted);
+
+        PreferenceVO result = srv.compareAndSet(new PreferenceVO(PropertyScope.MODULE, "CORE", "key", "new", 1.5F, 0, 0, null, 0));
+
+        assertEquals("new", result.getValue());
+        assertEquals(Float.valueOf(1.5F), persisted.getFloatValue());
+        verify(readModel).save(persisted);
+    }
+
+    /**
+     * Test method for {@link org.openwms.core.configuration.ConfigurationServiceImpl#compareAndSet(PreferenceVO)}.
+     * <p>
+     * A buffered change of a USER preference is written before the version is checked.
+     */
+    @Test
+    public final void testCompareAndSetFlushesPendingWrite() {
+        UserPreference persisted = new UserPreference("USER1", "key");
+        when(writer.findByKey(UserPreference.class, "USER1", "key")).thenReturn(Optional.of(persisted));
+        when(writer.store(persisted)).thenReturn(persisted);
+
+        srv.compareAndSet(new PreferenceVO(PropertyScope.USER, "USER1", "key", "new", null, 0, 0, null, 0));
+
+        InOrder inOrder = inOrder(writeBehind, writer);
+        inOrder.verify(writeBehind).flush("USER1", "key");
+        inOrder.verify(writer).findByKey(UserPreference.class, "USER1", "key");
+    }
+
+    /**
+     * Test method for {@link org.openwms.core.configuration.ConfigurationServiceImpl#compareAndSet(PreferenceVO)}.
+     * <p>
+     * A stale version must be rejected without writing.
+     */
+    @Test
+    public final void testCompareAndSetStaleVersion() {
+        ModulePreference persisted = new ModulePreference("CORE", "key");
+        when(writer.findByKey(ModulePreference.class, "CORE", "key")).thenReturn(Optional.of(persisted));
+
+        thrown.expect(OptimisticLockingFailureException.class);
+        try {
+            srv.compareAndSet(new PreferenceVO(PropertyScope.MODULE, "CORE", "key", "new", null, 0, 0, null, 3));
+        } finally {
+            verify(writer, never()).store(persisted);
+        }
+    }
+
+    /**
+     * Test method for {@link org.openwms.core.configuration.ConfigurationServiceImpl#updateValue(PropertyScope, String, String, String)}.
+     * <p>
+     * The preference and the read model are updated without loading the preference.
+     */
+    @Test
+    public final void testUpdateValue() {
+        when(writer.updateByKey(ModulePreference.class, "CORE", "key", "value", "new")).thenReturn(1);
+
+        srv.updateValue(PropertyScope.MODULE, "CORE", "key", "new");
+
+        verify(readModel).updateValue(PropertyScope.MODULE, "CORE", "key", "new");
+        verify(flatReader).findVOByKey(PropertyScope.MODULE, "CORE", "key");
+        verify(writer, never()).findByKey(ModulePreference.class, "CORE", "key");
+    }
+
+    /**
+     * Test method for {@link org.openwms.core.configuration.ConfigurationServiceImpl#updateFloatValue(PropertyScope, String, String, Float)}.
+     * <p>
+     * Updating an unknown preference must throw a NotFoundException.
+     */
+    @Test
+    public final void testUpdateFloatValueNotFound() {
+        when(writer.updateByKey(ModulePreference.class, "CORE", "key", "floatValue", 1F)).thenReturn(0);
+
+        thrown.expect(NotFoundException.class);
+        srv.updateFloatValue(PropertyScope.MODULE, "CORE", "key", 1F);
     }
 
     /**
@@ -211,6 +422,7 @@ public class ConfigurationServiceTest extends AbstractMockitoTests {
     @Test
     public final void testRemove() {
         srv.delete(new ApplicationPreference("TRANSIENT"));
-        verify(writer).delete(new ApplicationPreference("TRANSIENT"));
+        verify(writer).remove(new ApplicationPreference("TRANSIENT"));
+        verify(readModel).delete(new ApplicationPreference("TRANSIENT"));
     }
 }
\ No newline at end of file
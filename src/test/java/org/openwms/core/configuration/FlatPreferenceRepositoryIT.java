@@ -0,0 +1,141 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.openwms.core.configuration.file.ModulePreference;
+import org.openwms.core.configuration.file.UserPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * A FlatPreferenceRepositoryIT.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class FlatPreferenceRepositoryIT {
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private FlatPreferenceRepository repository;
+
+    @Before
+    public void onSetup() {
+        persist(new UserPreference("USER1", "ui.grid.width"), "100");
+        persist(new UserPreference("USER1", "ui.grid_height"), "200");
+        persist(new UserPreference("USER1", "uixgrid.depth"), "300");
+        persist(new UserPreference("USER2", "ui.grid.width"), "110");
+        persist(new ModulePreference("CORE", "ui.grid.width"), "120");
+    }
+
+    private void persist(AbstractPreference preference, String value) {
+        preference.setValue(value);
+        em.persist(preference);
+        em.persist(new FlatPreference(preference));
+    }
+
+    /**
+     * All filters are combined, only the selected fields are set.
+     */
+    @Test
+    public final void testFiltersAndFields() {
+        List<PreferenceVO> result = repository.findVOs(PropertyScope.USER, "USER1", "ui.grid",
+                EnumSet.of(PreferenceField.KEY, PreferenceField.VALUE));
+
+        assertThat(result)
+                .extracting("type", "owner", "key", "value", "version")
+                .containsOnly(tuple(null, null, "ui.grid.width", "100", 0L), tuple(null, null, "ui.grid_height", "200", 0L));
+    }
+
+    /**
+     * Wildcards of LIKE in the prefix are matched literally.
+     */
+    @Test
+    public final void testPrefixIsEscaped() {
+        assertThat(repository.findVOs(null, null, "ui.grid_", EnumSet.of(PreferenceField.KEY)))
+                .extracting("key").containsExactly("ui.grid_height");
+        assertThat(repository.findVOs(null, null, "ui_", EnumSet.of(PreferenceField.KEY))).isEmpty();
+    }
+
+    /**
+     * Without filters preferences of all scopes and owners are returned.
+     */
+    @Test
+    public final void testWithoutFilters() {
+        assertThat(repository.findVOs(null, null, null, EnumSet.allOf(PreferenceField.class)))
+                .hasSize(5)
+                .extracting("type").contains(PropertyScope.USER, PropertyScope.MODULE);
+        assertThat(repository.findVOs(PropertyScope.MODULE, null, "ui.", EnumSet.of(PreferenceField.OWNER)))
+                .extracting("owner").containsExactly("CORE");
+    }
+
+    /**
+     * Pages start after the identifier of the last element of the previous page, preferences deleted meanwhile do not shift the pages.
+     */
+    @Test
+    public final void testKeysetPages() {
+        List<KeyedPreferenceVO> first = repository.findVOPageByType(PropertyScope.USER, Long.MIN_VALUE, new PageRequest(0, 2));
+        assertThat(first).extracting("preference.key").containsExactly("ui.grid.width", "ui.grid_height");
+        repository.delete(first.get(0).getId());
+        em.flush();
+
+        List<KeyedPreferenceVO> second = repository.findVOPageByType(PropertyScope.USER, first.get(1).getId(), new PageRequest(0, 2));
+
+        assertThat(second).extracting("preference.owner", "preference.key")
+                .containsExactly(tuple("USER1", "uixgrid.depth"), tuple("USER2", "ui.grid.width"));
+        assertThat(repository.findVOPageByType(PropertyScope.USER, second.get(1).getId(), new PageRequest(0, 2))).isEmpty();
+    }
+
+    /**
+     * Checksums are grouped by scope.
+     */
+    @Test
+    public final void testFindChecksums() {
+        Map<Object, Long> counts = new HashMap<>();
+        for (Object[] row : repository.findChecksums()) {
+            counts.put(row[0], ((Number) row[1]).longValue());
+            assertThat(((Number) row[2]).longValue()).isZero();
+        }
+
+        assertThat(counts).containsOnlyKeys(PropertyScope.USER, PropertyScope.MODULE)
+                .containsEntry(PropertyScope.USER, 4L).containsEntry(PropertyScope.MODULE, 1L);
+    }
+}
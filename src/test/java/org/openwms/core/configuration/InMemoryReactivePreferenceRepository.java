@@ -0,0 +1,104 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.Flux;
+
+/**
+ * An InMemoryReactivePreferenceRepository is a {@link ReactivePreferenceRepository} that emits a fixed list of preferences, used as
+ * stand-in for the database in tests.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+class InMemoryReactivePreferenceRepository implements ReactivePreferenceRepository {
+
+    private final List<PreferenceVO> preferences;
+
+    InMemoryReactivePreferenceRepository(Collection<PreferenceVO> preferences) {
+        this.preferences = new ArrayList<>(preferences);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<PreferenceVO> findAll() {
+        return Flux.fromIterable(preferences);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<PreferenceVO> findByTypeAndOwner(PropertyScope type, String owner) {
+        return Flux.fromIterable(preferences.stream()
+                .filter(p -> p.getType() == type && (owner == null || owner.equals(p.getOwner())))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Subscribe to the {@code publisher} and wait until it has completed.
+     *
+     * @param publisher The publisher
+     * @param <T> The type of the elements
+     * @return All emitted elements
+     * @throws Exception If the publisher signals an error or does not complete within 5 seconds
+     */
+    static <T> List<T> collect(Publisher<T> publisher) throws Exception {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        List<T> elements = new ArrayList<>();
+        publisher.subscribe(new Subscriber<T>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(T element) {
+                elements.add(element);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(elements);
+            }
+        });
+        return result.get(5, TimeUnit.SECONDS);
+    }
+}
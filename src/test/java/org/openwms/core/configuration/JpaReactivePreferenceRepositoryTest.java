@@ -0,0 +1,156 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.openwms.core.test.AbstractMockitoTests;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+/**
+ * A JpaReactivePreferenceRepositoryTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class JpaReactivePreferenceRepositoryTest extends AbstractMockitoTests {
+
+    private PreferenceVO theme = new PreferenceVO(PropertyScope.APPLICATION, null, "ui.theme", "dark", null, 0, 0, null);
+    private PreferenceVO locale = new PreferenceVO(PropertyScope.APPLICATION, null, "ui.locale", "de", null, 0, 0, null);
+    private PreferenceVO timezone = new PreferenceVO(PropertyScope.APPLICATION, null, "ui.timezone", "CET", null, 0, 0, null);
+    @Mock
+    private FlatPreferenceRepository repository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @InjectMocks
+    private JpaReactivePreferenceRepository testee = new JpaReactivePreferenceRepository();
+
+    /**
+     * Execute queries on a separate thread, read pages of two preferences.
+     */
+    @Override
+    protected void doBefore() {
+        ReflectionTestUtils.setField(testee, "executor", new ConcurrentTaskExecutor());
+        ReflectionTestUtils.setField(testee, "pageSize", 2);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    }
+
+    /**
+     * The query does not run on the subscribing thread.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testQueryOnExecutor() throws Exception {
+        AtomicReference<Thread> queried = new AtomicReference<>();
+        when(repository.findVOPageByType(eq(PropertyScope.APPLICATION), anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            queried.set(Thread.currentThread());
+            return Collections.singletonList(new KeyedPreferenceVO(1, theme));
+        });
+
+        assertThat(InMemoryReactivePreferenceRepository.collect(testee.findByTypeAndOwner(PropertyScope.APPLICATION, null)))
+                .containsExactly(theme);
+        assertThat(queried.get()).isNotNull().isNotSameAs(Thread.currentThread());
+    }
+
+    /**
+     * A failing query is emitted as error.
+     */
+    @Test
+    public final void testError() {
+        when(repository.findVOPage(anyLong(), any(Pageable.class))).thenThrow(new IllegalStateException("Database down"));
+
+        assertThat(catchThrowable(() -> InMemoryReactivePreferenceRepository.collect(testee.findAll())))
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Pages are read as the subscriber requests elements, the next page only when the current one has been emitted. Each page starts
+     * after the identifier of the last element of the previous one.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testPagedByDemand() throws Exception {
+        ReflectionTestUtils.setField(testee, "executor", new SyncTaskExecutor());
+        when(repository.findVOPage(Long.MIN_VALUE, new PageRequest(0, 2)))
+                .thenReturn(Arrays.asList(new KeyedPreferenceVO(3, theme), new KeyedPreferenceVO(7, locale)));
+        when(repository.findVOPage(7L, new PageRequest(0, 2))).thenReturn(Collections.singletonList(new KeyedPreferenceVO(12, timezone)));
+        List<Object> signals = new ArrayList<>();
+        AtomicReference<Subscription> subscription = new AtomicReference<>();
+        testee.findAll().subscribe(new Subscriber<PreferenceVO>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription.set(s);
+            }
+
+            @Override
+            public void onNext(PreferenceVO preference) {
+                signals.add(preference);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                signals.add(t);
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+        verify(repository, never()).findVOPage(anyLong(), any(Pageable.class));
+
+        subscription.get().request(2);
+        assertThat(signals).containsExactly(theme, locale);
+        verify(repository, never()).findVOPage(7L, new PageRequest(0, 2));
+
+        subscription.get().request(2);
+        assertThat(signals).containsExactly(theme, locale, timezone, "complete");
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.openwms.core.test.AbstractMockitoTests;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * A PreferenceChangeLogTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class PreferenceChangeLogTest extends AbstractMockitoTests {
+
+    @Mock
+    private PreferenceChangeRepository changeRepository;
+    @Mock
+    private UserPreferenceCache userPreferenceCache;
+    @Mock
+    private PreferenceKeyIndex keyIndex;
+    @Mock
+    private EntityManagerFactory emf;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @InjectMocks
+    private PreferenceChangeLog changeLog = new PreferenceChangeLog();
+    private Cache cache = mock(Cache.class);
+
+    /**
+     * Mock the caches of the persistence provider.
+     */
+    @Override
+    protected void doBefore() {
+        ReflectionTestUtils.setField(changeLog, "lateCommitWindow", 60000L);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.getCache()).thenReturn(mock(org.hibernate.Cache.class));
+        when(emf.getCache()).thenReturn(cache);
+        when(emf.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+    }
+
+    /**
+     * Changes of other nodes are invalidated, own changes are skipped. Each change is read once.
+     */
+    @Test
+    public final void testPollInvalidatesOnce() {
+        PreferenceChange foreign = change(1L, "other", 42L);
+        PreferenceChange own = change(2L, (String) ReflectionTestUtils.getField(changeLog, "node"), 43L);
+        when(changeRepository.findAfter(0L)).thenReturn(Arrays.asList(foreign, own));
+
+        assertThat(changeLog.poll()).isEqualTo(2);
+        assertThat(changeLog.poll()).isEqualTo(0);
+
+        verify(changeRepository, times(1)).findAfter(2L);
+        verify(changeRepository, never()).findBySeqIn(anyCollectionOf(Long.class));
+        verify(userPreferenceCache, times(1)).invalidate(PropertyScope.USER, "USER1");
+        verify(keyIndex, times(1)).invalidate(PropertyScope.USER, "USER1");
+        verify(cache, times(1)).evict(AbstractPreference.class, 42L);
+        verify(cache, never()).evict(AbstractPreference.class, 43L);
+    }
+
+    /**
+     * A change that commits after higher sequence numbers have been read is still processed, because the skipped numbers are read again
+     * until they show up. Only the gaps are read again, not the processed changes.
+     */
+    @Test
+    public final void testLateCommit() {
+        ReflectionTestUtils.setField(changeLog, "lastSeq", 1L);
+        PreferenceChange early = change(5L, "other", 42L);
+        PreferenceChange late = change(3L, "other", 43L);
+        when(changeRepository.findAfter(1L)).thenReturn(Collections.singletonList(early));
+        when(changeRepository.findAfter(5L)).thenReturn(Collections.emptyList());
+        when(changeRepository.findBySeqIn(Arrays.asList(2L, 3L, 4L))).thenReturn(Collections.singletonList(late));
+
+        assertThat(changeLog.poll()).isEqualTo(1);
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(changeLog, "gaps")).containsOnlyKeys(2L, 3L, 4L);
+        assertThat(changeLog.poll()).isEqualTo(1);
+
+        verify(cache, times(1)).evict(AbstractPreference.class, 42L);
+        verify(cache, times(1)).evict(AbstractPreference.class, 43L);
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(changeLog, "gaps")).containsOnlyKeys(2L, 4L);
+    }
+
+    /**
+     * Gaps are given up after the late commit window and their number is limited.
+     */
+    @Test
+    public final void testGapsAreBounded() {
+        ReflectionTestUtils.setField(changeLog, "lateCommitWindow", 0L);
+        when(changeRepository.findAfter(0L)).thenReturn(Collections.singletonList(change(PreferenceChangeLog.MAX_GAPS + 100L, "other",
+                42L)));
+
+        assertThat(changeLog.poll()).isEqualTo(1);
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(changeLog, "gaps")).hasSize(PreferenceChangeLog.MAX_GAPS);
+
+        ReflectionTestUtils.setField(changeLog, "lateCommitWindow", -1L);
+        assertThat(changeLog.poll()).isEqualTo(0);
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(changeLog, "gaps")).isEmpty();
+    }
+
+    private PreferenceChange change(Long seq, String node, Long preferenceId) {
+        PreferenceChange change = new PreferenceChange(node, PropertyScope.USER, "USER1", "ui.theme", preferenceId);
+        ReflectionTestUtils.setField(change, "seq", seq);
+        return change;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * A PreferenceFieldTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class PreferenceFieldTest {
+
+    /**
+     * Field names are resolved regardless of surrounding whitespace.
+     */
+    @Test
+    public final void testOf() {
+        assertThat(PreferenceField.of(Arrays.asList("key", " value"))).containsOnly(PreferenceField.KEY, PreferenceField.VALUE);
+        assertThat(PreferenceField.of(null)).isEmpty();
+    }
+
+    /**
+     * An unknown field is a mistake of the client and not reported as an internal {@link IllegalArgumentException}.
+     */
+    @Test
+    public final void testOfUnknownField() {
+        assertThatThrownBy(() -> PreferenceField.of(Arrays.asList("key", "password")))
+                .isExactlyInstanceOf(InvalidPreferenceRequestException.class)
+                .hasMessageContaining("password");
+    }
+}
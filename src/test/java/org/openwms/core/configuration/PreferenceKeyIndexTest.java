@@ -0,0 +1,141 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.openwms.core.test.AbstractMockitoTests;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+/**
+ * A PreferenceKeyIndexTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class PreferenceKeyIndexTest extends AbstractMockitoTests {
+
+    private PreferenceVO width = new PreferenceVO(PropertyScope.USER, "USER1", "ui.grid.orders.width", "100", null, 0, 0, null);
+    private PreferenceVO height = new PreferenceVO(PropertyScope.USER, "USER1", "ui.grid.orders.height", "50", null, 0, 0, null);
+    private PreferenceVO locations = new PreferenceVO(PropertyScope.USER, "USER1", "ui.grid.locations.width", "80", null, 0, 0, null);
+    private PreferenceVO printer = new PreferenceVO(PropertyScope.USER, "USER1", "printer.labels.default", "LP1", null, 0, 0, null);
+    private PreferenceVO theme = new PreferenceVO(PropertyScope.APPLICATION, null, "ui.theme", "dark", null, 0, 0, null);
+    @Mock
+    private FlatPreferenceRepository repository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @InjectMocks
+    private PreferenceKeyIndex index = new PreferenceKeyIndex();
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * Allow two partitions only.
+     */
+    @Override
+    protected void doBefore() {
+        ReflectionTestUtils.setField(index, "maxPartitions", 2);
+        index.init();
+        index.bindTo(registry);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        when(repository.findVOsByTypeAndOwner(PropertyScope.USER, "USER1")).thenReturn(Arrays.asList(width, height, locations, printer));
+        when(repository.findVOsByType(PropertyScope.APPLICATION)).thenReturn(Collections.singletonList(theme));
+    }
+
+    /**
+     * A prefix selects the namespace ordered by key, the partition is loaded once.
+     */
+    @Test
+    public final void testFindByKeyPrefix() {
+        assertThat(index.findByKeyPrefix(PropertyScope.USER, "USER1", "ui.grid.orders.")).containsExactly(height, width);
+        assertThat(index.findByKeyPrefix(PropertyScope.USER, "USER1", "ui.grid.")).containsExactly(locations, height, width);
+        assertThat(index.findByKeyPrefix(PropertyScope.USER, "USER1", "")).containsExactly(printer, locations, height, width);
+        assertThat(index.findByKeyPrefix(PropertyScope.USER, "USER1", "x")).isEmpty();
+        assertThat(index.findByKeyPrefix(PropertyScope.APPLICATION, null, "ui.")).containsExactly(theme);
+        verify(repository, times(1)).findVOsByTypeAndOwner(PropertyScope.USER, "USER1");
+        assertThat(metric("preferences.key-index.hit")).isEqualTo(5D);
+    }
+
+    /**
+     * A change reloads the partition.
+     */
+    @Test
+    public final void testInvalidate() {
+        index.findByKeyPrefix(PropertyScope.USER, "USER1", "ui.");
+        index.findByKeyPrefix(PropertyScope.APPLICATION, null, "ui.");
+
+        index.invalidate(PropertyScope.USER, "USER1");
+        assertThat(metric("preferences.key-index.size")).isEqualTo(1D);
+        index.findByKeyPrefix(PropertyScope.USER, "USER1", "ui.");
+        verify(repository, times(2)).findVOsByTypeAndOwner(PropertyScope.USER, "USER1");
+    }
+
+    /**
+     * Beyond the limit the least recently queried partition is evicted, so that new owners are still served by the index.
+     */
+    @Test
+    public final void testLeastRecentlyUsed() {
+        index.findByKeyPrefix(PropertyScope.USER, "USER1", "ui.");
+        index.findByKeyPrefix(PropertyScope.APPLICATION, null, "ui.");
+        index.findByKeyPrefix(PropertyScope.USER, "USER1", "ui.");
+
+        assertThat(index.findByKeyPrefix(PropertyScope.USER, "USER2", "ui.")).isEmpty();
+        assertThat(metric("preferences.key-index.evicted")).isEqualTo(1D);
+        assertThat(metric("preferences.key-index.miss")).isEqualTo(0D);
+
+        index.findByKeyPrefix(PropertyScope.USER, "USER1", "ui.");
+        index.findByKeyPrefix(PropertyScope.APPLICATION, null, "ui.");
+        verify(repository, times(1)).findVOsByTypeAndOwner(PropertyScope.USER, "USER1");
+        verify(repository, times(2)).findVOsByType(PropertyScope.APPLICATION);
+    }
+
+    /**
+     * Without partitions the index is switched off and every query is a miss.
+     */
+    @Test
+    public final void testSwitchedOff() {
+        ReflectionTestUtils.setField(index, "maxPartitions", 0);
+        index.init();
+
+        assertThat(index.findByKeyPrefix(PropertyScope.USER, "USER1", "ui.")).isNull();
+        assertThat(metric("preferences.key-index.miss")).isEqualTo(1D);
+    }
+
+    private double metric(String name) {
+        return registry.find(name).meter().measure().iterator().next().getValue();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.openwms.core.configuration.PreferenceMetrics.RepositoryQuery;
+import org.openwms.core.configuration.PreferenceMetrics.ServiceOperation;
+
+/**
+ * A PreferenceMetricsTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class PreferenceMetricsTest {
+
+    private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PreferenceMetrics metrics = new PreferenceMetrics(registry);
+
+    /**
+     * Each operation is recorded with the timer of its scope only.
+     */
+    @Test
+    public final void testTaggedByScope() {
+        metrics.service(ServiceOperation.SAVE, PropertyScope.USER).record(() -> { });
+        metrics.service(ServiceOperation.SAVE, PropertyScope.USER).record(() -> { });
+        metrics.query(RepositoryQuery.FIND_BY_KEY, null).record(() -> { });
+
+        assertThat(registry.get("preferences.service").tags("operation", "save", "scope", "USER").timer().count()).isEqualTo(2);
+        assertThat(registry.get("preferences.service").tags("operation", "save", "scope", "ROLE").timer().count()).isEqualTo(0);
+        assertThat(registry.get("preferences.repository").tags("query", "findByKey", "scope", PreferenceMetrics.ANY_SCOPE).timer().count())
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.openwms.core.configuration.file.UserPreference;
+import org.openwms.core.test.AbstractMockitoTests;
+
+/**
+ * A PreferenceReadModelTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class PreferenceReadModelTest extends AbstractMockitoTests {
+
+    @Mock
+    private FlatPreferenceRepository flatPreferenceRepository;
+    @Mock
+    private PreferenceRepository preferenceRepository;
+    @InjectMocks
+    private PreferenceReadModel readModel = new PreferenceReadModel();
+
+    private void given(long flatVersionSum) {
+        Map<PropertyScope, PreferenceChecksum> checksums = new EnumMap<>(PropertyScope.class);
+        checksums.put(PropertyScope.APPLICATION, PreferenceChecksum.EMPTY);
+        checksums.put(PropertyScope.USER, PreferenceChecksum.of(2L, 5L, 42L));
+        when(preferenceRepository.checksums()).thenReturn(checksums);
+        when(flatPreferenceRepository.findChecksums()).thenReturn(Collections.singletonList(new Object[]{PropertyScope.USER, 2L,
+                flatVersionSum, 42L}));
+        when(preferenceRepository.findAllPreferences()).thenReturn(Collections.singletonList(new UserPreference("USER1", "ui.theme")));
+    }
+
+    /**
+     * Nothing is rebuilt if the checksums match, scopes without preferences match an empty read model.
+     */
+    @Test
+    public final void testInSync() {
+        given(5L);
+
+        readModel.rebuildIfOutOfSync();
+
+        verify(flatPreferenceRepository, never()).deleteAllInBatch();
+    }
+
+    /**
+     * A stale version in the read model is detected although the number of entries matches.
+     */
+    @Test
+    public final void testStaleVersion() {
+        given(4L);
+
+        readModel.rebuildIfOutOfSync();
+
+        verify(flatPreferenceRepository).deleteAllInBatch();
+        verify(flatPreferenceRepository).save(any(FlatPreference.class));
+    }
+}
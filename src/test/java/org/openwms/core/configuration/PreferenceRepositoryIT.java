@@ -0,0 +1,111 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.openwms.core.configuration.file.RolePreference;
+import org.openwms.core.configuration.file.UserPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * A PreferenceRepositoryIT.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class PreferenceRepositoryIT {
+
+    private static final int OWNERS = PreferenceRepositoryImpl.IN_LIST_CHUNK_SIZE * 2 + 1;
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private PreferenceRepository repository;
+
+    /**
+     * More owners than fit into one IN-list are queried in chunks, duplicate owners are queried once and only preferences of the requested
+     * type are returned.
+     */
+    @Test
+    public final void testFindByOwnersInChunks() {
+        List<String> owners = new ArrayList<>();
+        for (int i = 0; i < OWNERS; i++) {
+            em.persist(new UserPreference("USER" + i, "ui.theme"));
+            owners.add("USER" + i);
+        }
+        em.persist(new RolePreference("USER0", "ui.theme"));
+        em.flush();
+        em.clear();
+        owners.add("USER0");
+        owners.add("USER" + (OWNERS - 1));
+        owners.add("UNKNOWN");
+
+        List<UserPreference> result = repository.findByType(UserPreference.class, owners);
+
+        assertThat(result).hasSize(OWNERS).doesNotHaveDuplicates().extracting(AbstractPreference::getKey).containsOnly("ui.theme");
+        assertThat(result).extracting(AbstractPreference::getOwner).contains("USER0", "USER500", "USER" + (OWNERS - 1));
+        assertThat(repository.findByType(RolePreference.class, owners)).extracting(AbstractPreference::getOwner).containsExactly("USER0");
+    }
+
+    /**
+     * A preference of a JOINED subclass is updated with one single statement, without a temporary table, and its version is incremented.
+     */
+    @Test
+    public final void testUpdateByKeyWithOneStatement() {
+        UserPreference preference = new UserPreference("USER1", "ui.theme");
+        preference.setValue("light");
+        Long id = em.persistAndGetId(preference, Long.class);
+        em.persist(new UserPreference("USER2", "ui.theme"));
+        em.flush();
+        em.clear();
+        Statistics statistics = em.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        int updated = repository.updateByKey(UserPreference.class, "USER1", "ui.theme", "value", "dark");
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        UserPreference found = em.find(UserPreference.class, id);
+        assertThat(found.getValue()).isEqualTo("dark");
+        assertThat(found.getVersion()).isEqualTo(1);
+        em.clear();
+        assertThat(repository.updateByKey(UserPreference.class, "USER1", "ui.theme", "floatValue", null)).isEqualTo(1);
+        assertThat(em.find(UserPreference.class, id).getVersion()).isEqualTo(2);
+        assertThat(repository.findByType(UserPreference.class, "USER2")).extracting(AbstractPreference::getVersion).containsExactly(0L);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openwms.core.configuration.file.AbstractPreference;
+import org.openwms.core.configuration.file.ApplicationPreference;
+import org.openwms.core.configuration.file.UserPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * A PreferenceShardsIT stores preferences in two local H2 shards besides the primary database.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "openwms.core.config.initial-properties=",
+        "openwms.core.config.shards[0].url=jdbc:h2:mem:preferences-shard-0;DB_CLOSE_DELAY=-1",
+        "openwms.core.config.shards[0].username=sa",
+        "openwms.core.config.shards[1].url=jdbc:h2:mem:preferences-shard-1;DB_CLOSE_DELAY=-1",
+        "openwms.core.config.shards[1].username=sa"})
+@AutoConfigureTestDatabase
+public class PreferenceShardsIT {
+
+    private static final int OWNERS = 20;
+    @Autowired
+    private ConfigurationService configurationService;
+    @Autowired
+    private PreferenceShards shards;
+
+    /**
+     * USER preferences are distributed by owner, APPLICATION preferences stay in the primary database, reads across all shards return
+     * everything and identifiers are unique.
+     */
+    @Test
+    public final void testDistribution() {
+        for (int i = 0; i < OWNERS; i++) {
+            UserPreference preference = new UserPreference("USER" + i, "ui.theme");
+            preference.setValue("light");
+            configurationService.save(preference);
+        }
+        ApplicationPreference app = new ApplicationPreference("ui.locale");
+        app.setValue("en");
+        app = configurationService.save(app);
+
+        assertThat(shards.size()).isEqualTo(2);
+        long total = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            long count = shards.execute(shard, em -> em.createQuery("select count(u) from UserPreference u where u.key = :key", Long.class)
+                    .setParameter("key", "ui.theme").getSingleResult());
+            long expected = 0;
+            for (int o = 0; o < OWNERS; o++) {
+                expected += shards.shardOf("USER" + o) == shard ? 1 : 0;
+            }
+            assertThat(count).isEqualTo(expected);
+            assertThat(shards.execute(shard, em -> em.createQuery("select count(a) from ApplicationPreference a", Long.class)
+                    .getSingleResult())).isEqualTo(0);
+            total += count;
+        }
+        assertThat(total).isEqualTo(OWNERS);
+
+        Set<Long> ids = new HashSet<>();
+        for (AbstractPreference preference : configurationService.findByType(UserPreference.class, null)) {
+            if ("ui.theme".equals(preference.getKey())) {
+                assertThat(preference.getId()).isGreaterThan(1L << 48);
+                ids.add(preference.getId());
+            }
+        }
+        assertThat(ids).hasSize(OWNERS).doesNotContain(app.getId());
+        assertThat(configurationService.findAll()).extracting(AbstractPreference::getKey).contains("ui.locale", "ui.theme");
+        assertThat(configurationService.list(PropertyScope.USER, "USER7")).hasSize(1);
+    }
+
+    /**
+     * Updates are executed on the shard of the owner within the transaction of the service.
+     */
+    @Test
+    public final void testUpdateOnShard() {
+        UserPreference preference = new UserPreference("SHARDED", "ui.grid.width");
+        preference.setValue("100");
+        configurationService.save(preference);
+
+        PreferenceVO updated = configurationService.updateValue(PropertyScope.USER, "SHARDED", "ui.grid.width", "200");
+
+        assertThat(updated.getValue()).isEqualTo("200");
+        assertThat(configurationService.findByType(UserPreference.class, "SHARDED"))
+                .extracting(AbstractPreference::getValue).containsExactly("200");
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.openwms.core.configuration.file.UserPreference;
+import org.openwms.core.test.AbstractMockitoTests;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+/**
+ * A UserPreferenceCacheTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class UserPreferenceCacheTest extends AbstractMockitoTests {
+
+    private PreferenceVO user = new PreferenceVO(PropertyScope.USER, "USER1", "ui.grid.orders.width", "100", null, 0, 0, null);
+    private PreferenceVO role = new PreferenceVO(PropertyScope.ROLE, "ROLE_OPERATOR", "ui.theme", "dark", null, 0, 0, null);
+    @Mock
+    private FlatPreferenceRepository repository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @InjectMocks
+    private UserPreferenceCache cache = new UserPreferenceCache();
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * Run prewarming in the calling thread, keep one user only.
+     */
+    @Override
+    protected void doBefore() {
+        ReflectionTestUtils.setField(cache, "executor", new SyncTaskExecutor());
+        ReflectionTestUtils.setField(cache, "maxEntries", 1);
+        ReflectionTestUtils.setField(cache, "waitTimeout", 10L);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        cache.init();
+        cache.bindTo(registry);
+        when(repository.findVOsByTypeAndOwner(PropertyScope.USER, "USER1")).thenReturn(Collections.singletonList(user));
+        when(repository.findVOsByTypeAndOwners(PropertyScope.ROLE, Collections.singleton("ROLE_OPERATOR")))
+                .thenReturn(Collections.singletonList(role));
+    }
+
+    /**
+     * After prewarming reads are served from memory and counted as hits.
+     */
+    @Test
+    public final void testPrewarmedReads() {
+        cache.prewarm("USER1", Collections.singletonList("ROLE_OPERATOR"));
+
+        assertThat(cache.getUserPreferences("USER1")).containsExactly(user);
+        assertThat(cache.getAllPreferences("USER1")).containsExactly(user, role);
+        assertThat(cache.getUserPreferences("USER2")).isNull();
+        verify(repository, times(1)).findVOsByTypeAndOwner(PropertyScope.USER, "USER1");
+        assertThat(metric("preferences.prewarm.hit")).isEqualTo(2D);
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertThat(definition.getValue().isReadOnly()).isFalse();
+        assertThat(definition.getValue().getPropagationBehavior()).isEqualTo(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        assertThat(metric("preferences.prewarm.miss")).isEqualTo(1D);
+    }
+
+    /**
+     * Deleting a preference of the user drops the user's entry, prewarming beyond the limit evicts the least recently used user.
+     */
+    @Test
+    public final void testInvalidateAndLimit() {
+        cache.prewarm("USER1", Collections.emptyList());
+        cache.prewarm("USER2", Collections.emptyList());
+        assertThat(metric("preferences.prewarm.rejected")).isEqualTo(0D);
+        assertThat(metric("preferences.prewarm.evicted")).isEqualTo(1D);
+        assertThat(cache.getUserPreferences("USER1")).isNull();
+        assertThat(cache.getUserPreferences("USER2")).isEmpty();
+
+        cache.invalidate(new UserPreference("USER2", "ui.grid.orders.width"));
+        assertThat(cache.getUserPreferences("USER2")).isNull();
+        assertThat(metric("preferences.prewarm.size")).isEqualTo(0D);
+    }
+
+    /**
+     * Changed preferences of the user and its roles are applied in place, without reading from the database again. A change that is
+     * older than the held preference drops the entry.
+     */
+    @Test
+    public final void testUpdateInPlace() {
+        cache.prewarm("USER1", Collections.singletonList("ROLE_OPERATOR"));
+        PreferenceVO changedUser = new PreferenceVO(PropertyScope.USER, "USER1", "ui.grid.orders.width", "200", null, 0, 0, null, 1);
+        PreferenceVO addedUser = new PreferenceVO(PropertyScope.USER, "USER1", "ui.locale", "de", null, 0, 0, null, 0);
+        PreferenceVO changedRole = new PreferenceVO(PropertyScope.ROLE, "ROLE_OPERATOR", "ui.theme", "light", null, 0, 0, null, 1);
+        PreferenceVO otherUser = new PreferenceVO(PropertyScope.USER, "USER2", "ui.theme", "dark", null, 0, 0, null, 1);
+
+        cache.update(changedUser);
+        cache.update(addedUser);
+        cache.update(changedRole);
+        cache.update(otherUser);
+
+        assertThat(cache.getUserPreferences("USER1")).containsExactly(changedUser, addedUser);
+        assertThat(cache.getAllPreferences("USER1")).containsExactly(changedUser, addedUser, changedRole);
+        verify(repository, times(1)).findVOsByTypeAndOwner(PropertyScope.USER, "USER1");
+
+        cache.update(user);
+        assertThat(cache.getUserPreferences("USER1")).isNull();
+        assertThat(metric("preferences.prewarm.size")).isEqualTo(0D);
+    }
+
+    /**
+     * A read does not wait longer than the timeout for a prewarming in progress, the caller falls back to the database.
+     */
+    @Test
+    public final void testPrewarmingInProgress() {
+        ReflectionTestUtils.setField(cache, "executor", (TaskExecutor) task -> { });
+        cache.prewarm("USER1", Collections.emptyList());
+
+        assertThat(cache.getUserPreferences("USER1")).isNull();
+        assertThat(metric("preferences.prewarm.miss")).isEqualTo(1D);
+        assertThat(metric("preferences.prewarm.size")).isEqualTo(1D);
+
+        cache.update(user);
+        assertThat(metric("preferences.prewarm.size")).isEqualTo(0D);
+    }
+
+    private double metric(String name) {
+        return registry.find(name).meter().measure().iterator().next().getValue();
+    }
+}
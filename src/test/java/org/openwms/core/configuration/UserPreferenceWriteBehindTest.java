@@ -0,0 +1,243 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.openwms.core.configuration.file.UserPreference;
+import org.openwms.core.test.AbstractMockitoTests;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * An UserPreferenceWriteBehindTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class UserPreferenceWriteBehindTest extends AbstractMockitoTests {
+
+    @Mock
+    private PreferenceRepository preferenceRepository;
+    @Mock
+    private PreferenceReadModel readModel;
+    @Mock
+    private FlatPreferenceRepository flatPreferenceRepository;
+    @Mock
+    private UserPreferenceCache userPreferenceCache;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ConfigurationEventDispatcher eventDispatcher;
+    @Mock
+    private PreferenceChangeLog changeLog;
+    @InjectMocks
+    private UserPreferenceWriteBehind writeBehind = new UserPreferenceWriteBehind();
+
+    /**
+     * Enable write-behind without a timer, flushes are triggered by the tests.
+     */
+    @Override
+    protected void doBefore() {
+        ReflectionTestUtils.setField(writeBehind, "enabled", true);
+        ReflectionTestUtils.setField(writeBehind, "maxSize", 100);
+        ReflectionTestUtils.setField(writeBehind, "maxPending", 1000);
+        ReflectionTestUtils.setField(writeBehind, "maxAttempts", 3);
+        ReflectionTestUtils.setField(writeBehind, "interval", 60000);
+        when(preferenceRepository.updateByKey(eq(UserPreference.class), anyString(), anyString(), anyMap())).thenReturn(1);
+    }
+
+    /**
+     * Many changes of the same preference result in one write of the last value.
+     */
+    @Test
+    public final void testCoalescing() {
+        writeBehind.writeValue("USER1", "ui.grid.orders.width", "100");
+        writeBehind.writeValue("USER1", "ui.grid.orders.width", "200");
+        writeBehind.writeValue("USER1", "ui.grid.orders.width", "300");
+        writeBehind.writeValue("USER1", "ui.theme", "dark");
+        verify(preferenceRepository, never()).updateByKey(eq(UserPreference.class), anyString(), anyString(), anyMap());
+
+        writeBehind.flush();
+
+        verify(preferenceRepository, times(1)).updateByKey(UserPreference.class, "USER1", "ui.grid.orders.width", value("300"));
+        verify(preferenceRepository, never()).updateByKey(UserPreference.class, "USER1", "ui.grid.orders.width", value("100"));
+        verify(preferenceRepository, times(1)).updateByKey(UserPreference.class, "USER1", "ui.theme", value("dark"));
+        writeBehind.flush();
+        verify(preferenceRepository, times(2)).updateByKey(eq(UserPreference.class), anyString(), anyString(), anyMap());
+    }
+
+    /**
+     * A change of both values is written with one statement, so the version is incremented once, and the event carries the preference as
+     * it has been written.
+     */
+    @Test
+    public final void testWriteBothValues() {
+        PreferenceVO written = new PreferenceVO(PropertyScope.USER, "USER1", "ui.zoom", "large", 1.5F, 1, 2, "Zoom", 5);
+        when(flatPreferenceRepository.findVOByKey(PropertyScope.USER, "USER1", "ui.zoom")).thenReturn(written);
+        writeBehind.writeValue("USER1", "ui.zoom", "large");
+        writeBehind.writeFloatValue("USER1", "ui.zoom", 1.5F);
+
+        writeBehind.flush();
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("value", "large");
+        attributes.put("floatValue", 1.5F);
+        verify(preferenceRepository, times(1)).updateByKey(UserPreference.class, "USER1", "ui.zoom", attributes);
+        verify(readModel, times(1)).updateValues(PropertyScope.USER, "USER1", "ui.zoom", "large", 1.5F);
+        verify(readModel, never()).updateValue(anyObject(), anyString(), anyString(), anyString());
+        verify(eventDispatcher, times(1)).dispatch(written);
+    }
+
+    /**
+     * Flushing a single preference writes only its own buffered change.
+     */
+    @Test
+    public final void testFlushSinglePreference() {
+        writeBehind.writeValue("USER1", "ui.grid.orders.width", "300");
+        writeBehind.writeValue("USER1", "ui.theme", "dark");
+
+        writeBehind.flush("USER1", "ui.theme");
+        writeBehind.flush("USER1", "ui.unknown");
+
+        verify(preferenceRepository, times(1)).updateByKey(UserPreference.class, "USER1", "ui.theme", value("dark"));
+        verify(preferenceRepository, never()).updateByKey(UserPreference.class, "USER1", "ui.grid.orders.width", value("300"));
+        assertThat(writeBehind.hasPending()).isTrue();
+    }
+
+    /**
+     * Reads see buffered changes before they are flushed.
+     */
+    @Test
+    public final void testOverlay() {
+        writeBehind.writeValue("USER1", "ui.grid.orders.width", "300");
+        Collection<PreferenceVO> result = writeBehind.overlay(Collections.singletonList(
+                new PreferenceVO(PropertyScope.USER, "USER1", "ui.grid.orders.width", "100", null, 0, 0, null, 4)));
+
+        assertThat(result).extracting("value").containsExactly("300");
+        assertThat(result).extracting("version").containsExactly(4L);
+    }
+
+    /**
+     * When the batch fails the changes are written one by one, so one failing change does not hold back the others. The failing change is
+     * retried and dropped after the maximum number of attempts.
+     */
+    @Test
+    public final void testFailingChangeIsWrittenAloneAndDropped() {
+        when(preferenceRepository.updateByKey(UserPreference.class, "USER1", "ui.broken", value("x")))
+                .thenThrow(new IllegalStateException("Constraint violated"));
+        writeBehind.writeValue("USER1", "ui.theme", "dark");
+        writeBehind.writeValue("USER1", "ui.broken", "x");
+
+        writeBehind.flush();
+
+        verify(preferenceRepository, atLeastOnce()).updateByKey(UserPreference.class, "USER1", "ui.theme", value("dark"));
+        verify(readModel, atLeastOnce()).updateValue(PropertyScope.USER, "USER1", "ui.theme", "dark");
+        assertThat(writeBehind.hasPending()).isTrue();
+
+        writeBehind.flush();
+        assertThat(writeBehind.hasPending()).isTrue();
+        writeBehind.flush();
+        assertThat(writeBehind.hasPending()).isFalse();
+        verify(preferenceRepository, times(6)).updateByKey(UserPreference.class, "USER1", "ui.broken", value("x"));
+        verify(preferenceRepository, atMost(2)).updateByKey(UserPreference.class, "USER1", "ui.theme", value("dark"));
+    }
+
+    /**
+     * A full buffer still coalesces changes of buffered preferences, but changes of further preferences are written immediately.
+     */
+    @Test
+    public final void testBackpressureWhenFull() {
+        ReflectionTestUtils.setField(writeBehind, "maxPending", 2);
+        writeBehind.writeValue("USER1", "ui.grid.orders.width", "300");
+        writeBehind.writeValue("USER1", "ui.theme", "dark");
+        writeBehind.writeValue("USER1", "ui.theme", "light");
+        verify(preferenceRepository, never()).updateByKey(eq(UserPreference.class), anyString(), anyString(), anyMap());
+
+        PreferenceVO written = new PreferenceVO(PropertyScope.USER, "USER1", "ui.zoom", "large", null, 1, 2, "Zoom", 5);
+        when(flatPreferenceRepository.findVOByKey(PropertyScope.USER, "USER1", "ui.zoom")).thenReturn(written);
+        writeBehind.writeValue("USER1", "ui.zoom", "large");
+
+        verify(preferenceRepository, times(1)).updateByKey(UserPreference.class, "USER1", "ui.zoom", value("large"));
+        verify(eventDispatcher, times(1)).dispatch(written);
+        verify(preferenceRepository, never()).updateByKey(UserPreference.class, "USER1", "ui.theme", value("light"));
+    }
+
+    /**
+     * Shutdown writes all buffered changes and fails when changes could not be written.
+     */
+    @Test
+    public final void testShutdownFailsWithLostChanges() {
+        when(preferenceRepository.updateByKey(UserPreference.class, "USER1", "ui.broken", value("x")))
+                .thenThrow(new IllegalStateException("Constraint violated"));
+        writeBehind.start();
+        writeBehind.writeValue("USER1", "ui.theme", "dark");
+        writeBehind.writeValue("USER1", "ui.broken", "x");
+
+        try {
+            writeBehind.stop();
+            fail("Expected an IllegalStateException because a buffered change is lost");
+        } catch (IllegalStateException ise) {
+            assertThat(ise.getMessage()).startsWith("[1] buffered preference changes");
+        }
+        verify(readModel, atLeastOnce()).updateValue(PropertyScope.USER, "USER1", "ui.theme", "dark");
+        assertThat(writeBehind.hasPending()).isFalse();
+    }
+
+    /**
+     * Shutdown writes all buffered changes.
+     */
+    @Test
+    public final void testShutdownFlushes() {
+        writeBehind.start();
+        writeBehind.writeValue("USER1", "ui.theme", "dark");
+
+        writeBehind.stop();
+
+        verify(preferenceRepository, times(1)).updateByKey(UserPreference.class, "USER1", "ui.theme", value("dark"));
+        assertThat(writeBehind.hasPending()).isFalse();
+    }
+
+    private static Map<String, Object> value(String value) {
+        return Collections.singletonMap("value", value);
+    }
+}
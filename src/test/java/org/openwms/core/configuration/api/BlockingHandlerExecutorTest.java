@@ -0,0 +1,101 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+/**
+ * A BlockingHandlerExecutorTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class BlockingHandlerExecutorTest {
+
+    private BlockingHandlerExecutor testee = new BlockingHandlerExecutor();
+
+    private void start(boolean asyncRequests, int maxConcurrency) {
+        ReflectionTestUtils.setField(testee, "recorder", new LatencyRecorder());
+        ReflectionTestUtils.setField(testee, "asyncRequests", asyncRequests);
+        ReflectionTestUtils.setField(testee, "maxConcurrency", maxConcurrency);
+        ReflectionTestUtils.setField(testee, "queueCapacity", 10);
+        ReflectionTestUtils.setField(testee, "timeout", 200L);
+        testee.start();
+    }
+
+    @After
+    public void tearDown() {
+        testee.stop();
+    }
+
+    /**
+     * By default handlers are executed on the calling thread.
+     */
+    @Test
+    public final void testSynchronous() {
+        start(false, 1);
+        assertThat(testee.execute(() -> Thread.currentThread().getName())).isEqualTo(Thread.currentThread().getName());
+    }
+
+    /**
+     * In async mode a WebAsyncTask is returned and handlers beyond the concurrency limit are rejected.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testAsynchronousWithLimit() throws Exception {
+        start(true, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WebAsyncTask<?> blocking = (WebAsyncTask<?>) testee.execute(() -> {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return "first";
+        });
+        Future<?> first = blocking.getExecutor().submit(blocking.getCallable());
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Callable<?> second = ((WebAsyncTask<?>) testee.execute(() -> "second")).getCallable();
+        assertThatThrownBy(second::call).isInstanceOf(TaskRejectedException.class);
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(second.call()).isEqualTo("second");
+    }
+}
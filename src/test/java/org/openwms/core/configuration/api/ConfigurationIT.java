@@ -25,7 +25,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.openwms.core.configuration.file.AbstractPreference;
+import org.openwms.core.configuration.PreferenceVO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -49,7 +49,7 @@ public class ConfigurationIT {
     public
     @Test
     void testSave() throws Exception {
-        Iterable<AbstractPreference> all = testee.findAll();
+        Iterable<PreferenceVO> all = testee.findAll();
         assertThat(all)
                 .isNotNull()
                 .hasSize(0);
@@ -0,0 +1,243 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openwms.core.configuration.ConfigurationService;
+import org.openwms.core.configuration.file.UserPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * A ConfigurationLoadIT drives reads and writes against the REST API of the preferences on an embedded H2 database and writes throughput,
+ * latency percentiles and error rate as JSON, so that results can be compared across versions. The test is skipped unless the system
+ * property {@code loadtest} is set, run it with {@code mvn verify -Dloadtest -Dit.test=ConfigurationLoadIT}.
+ * <p>
+ * System properties (defaults in brackets):
+ * <ul>
+ *     <li>{@code loadtest.users} - number of users in the synthetic dataset [200]</li>
+ *     <li>{@code loadtest.keys} - number of preferences per user [25]</li>
+ *     <li>{@code loadtest.threads} - number of concurrent clients [16]</li>
+ *     <li>{@code loadtest.warmup} - number of requests sent before measuring [2000]</li>
+ *     <li>{@code loadtest.requests} - number of measured requests [20000]</li>
+ *     <li>{@code loadtest.write-ratio} - fraction of the requests that are writes [0.1]</li>
+ *     <li>{@code loadtest.seed} - seed of the request mix [42]</li>
+ *     <li>{@code loadtest.output} - file to write the result to [target/loadtest/preferences.json]</li>
+ * </ul>
+ * To compare asynchronous handler execution with the servlet thread pool, run the test twice with a small pool, e.g. {@code
+ * -Dserver.tomcat.max-threads=8 -Dloadtest.threads=64}, once as is and once with {@code -Dopenwms.core.config.async-requests=true}. The
+ * mode and the size of the pool are part of the result.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"openwms.core.config.initial-properties=", "openwms.core.config.latency-sampling-rate=0"})
+@AutoConfigureTestDatabase
+public class ConfigurationLoadIT {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 200);
+    private static final int KEYS = Integer.getInteger("loadtest.keys", 25);
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 16);
+    private static final int WARMUP = Integer.getInteger("loadtest.warmup", 2000);
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 20000);
+    private static final double WRITE_RATIO = Double.parseDouble(System.getProperty("loadtest.write-ratio", "0.1"));
+    private static final long SEED = Long.getLong("loadtest.seed", 42L);
+    private static final String OUTPUT = System.getProperty("loadtest.output", "target/loadtest/preferences.json");
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private ConfigurationService configurationService;
+    @Autowired
+    private Environment environment;
+
+    @BeforeClass
+    public static void onlyOnDemand() {
+        Assume.assumeTrue("Load test is only run with -Dloadtest", System.getProperty("loadtest") != null);
+    }
+
+    /**
+     * Seed the dataset, warm up and run the measured requests.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testLoad() throws Exception {
+        for (int u = 0; u < USERS; u++) {
+            for (int k = 0; k < KEYS; k++) {
+                UserPreference preference = new UserPreference(user(u), key(k));
+                preference.setValue("initial");
+                configurationService.save(preference);
+            }
+        }
+
+        run(WARMUP, new Result());
+        Result reads = new Result();
+        Result writes = new Result();
+        long start = System.nanoTime();
+        Result all = run(REQUESTS, reads, writes);
+        long elapsed = System.nanoTime() - start;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        Map<String, Object> setup = new LinkedHashMap<>();
+        setup.put("users", USERS);
+        setup.put("keysPerUser", KEYS);
+        setup.put("threads", THREADS);
+        setup.put("requests", REQUESTS);
+        setup.put("writeRatio", WRITE_RATIO);
+        setup.put("seed", SEED);
+        setup.put("asyncRequests", environment.getProperty("openwms.core.config.async-requests", Boolean.class, false));
+        setup.put("servletThreads", environment.getProperty("server.tomcat.max-threads", Integer.class, 0));
+        report.put("setup", setup);
+        report.put("durationMs", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        report.put("total", all.toMap(elapsed));
+        report.put("reads", reads.toMap(elapsed));
+        report.put("writes", writes.toMap(elapsed));
+        File output = new File(OUTPUT);
+        output.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+
+        assertThat(all.count.get()).isEqualTo(REQUESTS);
+    }
+
+    private Result run(int requests, Result results) throws InterruptedException {
+        return run(requests, results, results);
+    }
+
+    private Result run(int requests, Result reads, Result writes) throws InterruptedException {
+        Result all = new Result();
+        AtomicInteger remaining = new AtomicInteger(requests);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(SEED + t);
+            clients.execute(() -> {
+                try {
+                    while (remaining.getAndDecrement() > 0) {
+                        boolean write = random.nextDouble() < WRITE_RATIO;
+                        String user = user(random.nextInt(USERS));
+                        long start = System.nanoTime();
+                        boolean ok = write
+                                ? write(user, key(random.nextInt(KEYS)), String.valueOf(random.nextInt()))
+                                : read(user, random.nextBoolean());
+                        long latency = System.nanoTime() - start;
+                        all.record(latency, ok);
+                        (write ? writes : reads).record(latency, ok);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        clients.shutdown();
+        return all;
+    }
+
+    private boolean read(String user, boolean effective) {
+        try {
+            ResponseEntity<String> response = effective
+                    ? restTemplate.getForEntity("/v1/preferences/users/{username}", String.class, user)
+                    : restTemplate.getForEntity("/v1/preferences/USER?owner={owner}", String.class, user);
+            return response.getStatusCode().is2xxSuccessful();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private boolean write(String user, String key, String value) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("value", value);
+        try {
+            return restTemplate.exchange("/v1/preferences/users/{username}/values/{key}", HttpMethod.PUT, new HttpEntity<>(body),
+                    Void.class, user, key).getStatusCode().is2xxSuccessful();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static String user(int i) {
+        return "USER" + i;
+    }
+
+    private static String key(int i) {
+        return "ui.setting." + i;
+    }
+
+    private static final class Result {
+
+        private final Timer timer = Timer.builder("preferences.load").publishPercentiles(0.5, 0.99).register(new SimpleMeterRegistry());
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        private void record(long nanos, boolean ok) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            count.incrementAndGet();
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+        }
+
+        private Map<String, Object> toMap(long elapsedNanos) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            long n = count.get();
+            result.put("requests", n);
+            result.put("throughputPerSec", elapsedNanos == 0 ? 0 : n * 1_000_000_000d / elapsedNanos);
+            ValueAtPercentile[] percentiles = timer.takeSnapshot().percentileValues();
+            result.put("p50Ms", percentiles[0].value(TimeUnit.MILLISECONDS));
+            result.put("p99Ms", percentiles[1].value(TimeUnit.MILLISECONDS));
+            result.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+            result.put("errorRate", n == 0 ? 0 : (double) errors.get() / n);
+            return result;
+        }
+    }
+}
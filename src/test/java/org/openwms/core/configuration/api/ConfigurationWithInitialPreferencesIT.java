@@ -26,9 +26,8 @@ import static org.assertj.core.groups.Tuple.tuple;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.openwms.core.configuration.PreferenceVO;
 import org.openwms.core.configuration.PropertyScope;
-import org.openwms.core.configuration.file.AbstractPreference;
-import org.openwms.core.configuration.file.ApplicationPreference;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -46,14 +45,8 @@ import org.springframework.test.context.junit4.SpringRunner;
 @AutoConfigureTestDatabase
 public class ConfigurationWithInitialPreferencesIT {
 
-    private ApplicationPreference saved = new ApplicationPreference.Builder()
-            .withKey("defaultLanguage")
-            .withDescription("description")
-            .withMinimum(10)
-            .withMaximum(100)
-            .withFloatValue(22.1F)
-            .withValue("en_US")
-            .build();
+    private PreferenceVO saved = new PreferenceVO(PropertyScope.APPLICATION, null, "defaultLanguage", "en_US", 22.1F, 10, 100,
+            "description");
 
     @Autowired
     private ConfigurationController testee;
@@ -61,7 +54,7 @@ public class ConfigurationWithInitialPreferencesIT {
     public
     @Test
     void testSave() throws Exception {
-        Iterable<AbstractPreference> all = testee.findAll();
+        Iterable<PreferenceVO> all = testee.findAll();
         assertThat(all)
                 .isNotNull()
                 .hasSize(1)
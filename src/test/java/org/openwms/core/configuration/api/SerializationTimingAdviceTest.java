@@ -0,0 +1,64 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * A SerializationTimingAdviceTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class SerializationTimingAdviceTest {
+
+    private LatencyRecorder recorder = new LatencyRecorder();
+    private SerializationTimingAdvice testee = new SerializationTimingAdvice();
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * Only sampled requests are advised, their serialization is recorded once when the handler has been processed.
+     */
+    @Test
+    public final void testSerializationOfSampledRequests() {
+        ReflectionTestUtils.setField(testee, "recorder", recorder);
+        recorder.bindTo(registry);
+        assertThat(testee.supports(null, null)).isFalse();
+
+        ReflectionTestUtils.setField(recorder, "samplingRate", 1);
+        recorder.begin();
+        assertThat(testee.supports(null, null)).isTrue();
+        Object body = new Object();
+        assertThat(testee.beforeBodyWrite(body, null, null, null, null, null)).isSameAs(body);
+        new LatencyInterceptor(recorder).postHandle(null, null, null, null);
+        recorder.end();
+
+        assertThat(registry.find("preferences.latency").tags("stage", "serialization").timer().count()).isEqualTo(1);
+        assertThat(registry.find("preferences.latency").tags("stage", "total").timer().count()).isEqualTo(1);
+    }
+}
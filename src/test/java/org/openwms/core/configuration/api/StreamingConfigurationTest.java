@@ -0,0 +1,84 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+/**
+ * A StreamingConfigurationTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class StreamingConfigurationTest {
+
+    private StreamingConfiguration testee = new StreamingConfiguration();
+
+    /**
+     * Async requests are executed on the bounded executor with the configured timeout, responses beyond the limit of concurrently written
+     * and waiting ones are rejected.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testBoundedAsyncSupport() throws Exception {
+        ReflectionTestUtils.setField(testee, "maxConcurrency", 1);
+        ReflectionTestUtils.setField(testee, "queueCapacity", 1);
+        ReflectionTestUtils.setField(testee, "timeout", 1000L);
+        AsyncSupportConfigurer configurer = new AsyncSupportConfigurer();
+        testee.configureAsyncSupport(configurer);
+        assertThat(ReflectionTestUtils.getField(configurer, "timeout")).isEqualTo(1000L);
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) ReflectionTestUtils.getField(configurer, "taskExecutor");
+        executor.initialize();
+        try {
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<?> writing = executor.submit(() -> {
+                running.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "first";
+            });
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<?> waiting = executor.submit(() -> "second");
+
+            assertThatThrownBy(() -> executor.submit(() -> "third")).isInstanceOf(TaskRejectedException.class);
+
+            release.countDown();
+            assertThat(writing.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+            assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
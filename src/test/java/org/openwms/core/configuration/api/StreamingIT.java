@@ -0,0 +1,129 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openwms.core.configuration.ConfigurationService;
+import org.openwms.core.configuration.PreferenceVO;
+import org.openwms.core.configuration.PropertyScope;
+import org.openwms.core.configuration.file.ApplicationPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+/**
+ * A StreamingIT reads preferences through the streaming endpoints, with a page size that is smaller than the number of preferences.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"openwms.core.config.initial-properties=", "openwms.core.config.reactive-page-size=2"})
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class StreamingIT {
+
+    private static final MediaType APPLICATION_STREAM_JSON = MediaType.valueOf(StreamingSubscriber.APPLICATION_STREAM_JSON_VALUE);
+    private static final int PREFERENCES = 5;
+    private static boolean initialized;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ConfigurationService configurationService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void onBefore() {
+        if (!initialized) {
+            for (int i = 0; i < PREFERENCES; i++) {
+                ApplicationPreference preference = new ApplicationPreference("streaming." + i);
+                preference.setValue(String.valueOf(i));
+                configurationService.save(preference);
+            }
+            initialized = true;
+        }
+    }
+
+    /**
+     * All preferences are written one per line, across several pages.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testStreamAll() throws Exception {
+        assertThat(stream(get("/v1/preferences")))
+                .extracting("key")
+                .contains("streaming.0", "streaming.1", "streaming.2", "streaming.3", "streaming.4");
+    }
+
+    /**
+     * Only the preferences of the scope are written.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testStreamByScope() throws Exception {
+        List<PreferenceVO> preferences = stream(get("/v1/preferences/APPLICATION"));
+
+        assertThat(preferences).hasSize(configurationService.findByType(ApplicationPreference.class, null).size());
+        assertThat(preferences).extracting("type").containsOnly(PropertyScope.APPLICATION);
+        assertThat(stream(get("/v1/preferences/USER"))).isEmpty();
+    }
+
+    private List<PreferenceVO> stream(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder.accept(APPLICATION_STREAM_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_STREAM_JSON))
+                .andReturn().getResponse().getContentAsString();
+        List<PreferenceVO> preferences = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isEmpty()) {
+                preferences.add(objectMapper.readValue(line, PreferenceVO.class));
+            }
+        }
+        return preferences;
+    }
+}
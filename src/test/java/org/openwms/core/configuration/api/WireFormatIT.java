@@ -0,0 +1,128 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openwms.core.configuration.ConfigurationService;
+import org.openwms.core.configuration.PreferenceVO;
+import org.openwms.core.configuration.file.ApplicationPreference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+/**
+ * A WireFormatIT verifies the content negotiation of the preferences API, JSON is written unless a client explicitly asks for a binary
+ * format.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "openwms.core.config.initial-properties=")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class WireFormatIT {
+
+    private static final String BROWSER = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.valueOf("application/cbor");
+    private static final TypeReference<List<PreferenceVO>> LIST_OF_VOS = new TypeReference<List<PreferenceVO>>() {
+    };
+    private static boolean initialized;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ConfigurationService configurationService;
+    @Autowired
+    private Jackson2ObjectMapperBuilder builder;
+
+    @Before
+    public void onBefore() {
+        if (!initialized) {
+            ApplicationPreference preference = new ApplicationPreference("wire.format");
+            preference.setValue("json");
+            configurationService.save(preference);
+            initialized = true;
+        }
+    }
+
+    public
+    @Test
+    void testWithoutAccept() throws Exception {
+        assertFormat(get("/v1/preferences"), MediaType.APPLICATION_JSON, builder.build());
+    }
+
+    public
+    @Test
+    void testWildcardAndBrowserAccept() throws Exception {
+        assertFormat(get("/v1/preferences").accept(MediaType.ALL), MediaType.APPLICATION_JSON, builder.build());
+        assertFormat(get("/v1/preferences").header(HttpHeaders.ACCEPT, BROWSER), MediaType.APPLICATION_JSON, builder.build());
+    }
+
+    public
+    @Test
+    void testJson() throws Exception {
+        assertFormat(get("/v1/preferences").accept(MediaType.APPLICATION_JSON), MediaType.APPLICATION_JSON, builder.build());
+    }
+
+    public
+    @Test
+    void testSmile() throws Exception {
+        assertFormat(get("/v1/preferences").accept(SMILE), SMILE, WireFormatConfiguration.smileMapper(builder));
+    }
+
+    public
+    @Test
+    void testCbor() throws Exception {
+        assertFormat(get("/v1/preferences").accept(CBOR), CBOR, WireFormatConfiguration.cborMapper(builder));
+    }
+
+    private void assertFormat(MockHttpServletRequestBuilder request, MediaType expected, ObjectMapper mapper) throws Exception {
+        byte[] body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(expected))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(mapper.<List<PreferenceVO>>readValue(body, LIST_OF_VOS))
+                .extracting("key", "value")
+                .contains(tuple("wire.format", "json"));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.Assume;
+import org.junit.Test;
+import org.openwms.core.configuration.PreferenceVO;
+import org.openwms.core.configuration.PropertyScope;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * A WireFormatsTest verifies that preferences survive all wire formats and compares payload size and serialization time of the binary
+ * formats against JSON. The benchmark is skipped unless the system property {@code benchmark} is set, results are written to
+ * {@code target/benchmark/wire-formats.json}.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class WireFormatsTest {
+
+    private static final TypeReference<List<PreferenceVO>> LIST_OF_VOS = new TypeReference<List<PreferenceVO>>() {
+    };
+    private final Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+
+    public WireFormatsTest() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        mappers.put("json", builder.build());
+        mappers.put("smile", WireFormatConfiguration.smileMapper(builder));
+        mappers.put("cbor", WireFormatConfiguration.cborMapper(builder));
+    }
+
+    /**
+     * The preferences of one user as fetched by a handheld after login.
+     */
+    private static List<PreferenceVO> payload(int size) {
+        List<PreferenceVO> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(i % 2 == 0
+                    ? new PreferenceVO(PropertyScope.USER, "PICKER0815", "ui.grid.orders.column" + i + ".width", null, 120F + i, 0, 0,
+                    null, i)
+                    : new PreferenceVO(PropertyScope.USER, "PICKER0815", "scanner.profile." + i, "continuous", null, 0, 0,
+                    "Scan mode of the device", i));
+        }
+        return result;
+    }
+
+    /**
+     * Every format reads what it has written and the binary formats are smaller than JSON.
+     *
+     * @throws IOException Any error
+     */
+    @Test
+    public final void testRoundTripAndSize() throws IOException {
+        List<PreferenceVO> payload = payload(200);
+        int json = mappers.get("json").writeValueAsBytes(payload).length;
+        for (Map.Entry<String, ObjectMapper> mapper : mappers.entrySet()) {
+            byte[] bytes = mapper.getValue().writeValueAsBytes(payload);
+            assertThat(mapper.getValue().<List<PreferenceVO>>readValue(bytes, LIST_OF_VOS)).as(mapper.getKey()).isEqualTo(payload);
+            assertThat(bytes.length).as(mapper.getKey()).isLessThanOrEqualTo(json);
+        }
+    }
+
+    /**
+     * Measure payload size, raw and gzip compressed, and the time to write and read the payload in each format.
+     *
+     * @throws IOException Any error
+     */
+    @Test
+    public final void testBenchmark() throws IOException {
+        Assume.assumeTrue("Benchmark is only run with -Dbenchmark", System.getProperty("benchmark") != null);
+        int iterations = Integer.getInteger("benchmark.iterations", 5000);
+        Map<String, Object> report = new LinkedHashMap<>();
+        for (int size : new int[]{10, 200, 2000}) {
+            List<PreferenceVO> payload = payload(size);
+            Map<String, Object> results = new LinkedHashMap<>();
+            for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+                ObjectMapper mapper = entry.getValue();
+                byte[] bytes = mapper.writeValueAsBytes(payload);
+                for (int i = 0; i < iterations; i++) {
+                    mapper.readValue(mapper.writeValueAsBytes(payload), LIST_OF_VOS);
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    mapper.writeValueAsBytes(payload);
+                }
+                long write = (System.nanoTime() - start) / iterations;
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    mapper.readValue(bytes, LIST_OF_VOS);
+                }
+                long read = (System.nanoTime() - start) / iterations;
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("bytes", bytes.length);
+                result.put("gzipBytes", gzip(bytes).length);
+                result.put("writeMicros", write / 1000d);
+                result.put("readMicros", read / 1000d);
+                results.put(entry.getKey(), result);
+            }
+            report.put("preferences" + size, results);
+        }
+        File output = new File(System.getProperty("benchmark.output", "target/benchmark/wire-formats.json"));
+        output.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, report);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+            gzip.write(bytes);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -31,6 +31,7 @@ import javax.xml.bind.ValidationEvent;
 import javax.xml.bind.ValidationEventHandler;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -153,6 +154,26 @@ public class ApplicationPreferenceTest {
         for (AbstractPreference pref : prefs.getUsers()) {
             LOGGER.info(pref.toString());
         }
+        assertThat(prefs.getApplications()).hasSize(3);
+        assertThat(prefs.getModules()).hasSize(2);
+        assertThat(prefs.getUsers()).isEmpty();
+        assertThat(prefs.getRoles()).isEmpty();
+    }
+
+    /**
+     * Test partitioning by type of programmatically created Preferences.
+     */
+    @Test
+    public final void testPartitionByType() {
+        ApplicationPreference ap1 = new ApplicationPreference(APP_PREF1);
+        MockApplicationPreference ap2 = new MockApplicationPreference(APP_PREF3);
+        ModulePreference mp = new ModulePreference("CORE", APP_PREF1);
+        Preferences prefs = new Preferences(Arrays.asList(ap1, mp, ap2));
+
+        assertThat(prefs.getOfType(ApplicationPreference.class)).containsExactly(ap1, ap2);
+        assertThat(prefs.getOfType(ModulePreference.class)).containsExactly(mp);
+        assertThat(prefs.getOfType(MockApplicationPreference.class)).isEmpty();
+        assertThatThrownBy(() -> prefs.getApplications().add(ap1)).isInstanceOf(UnsupportedOperationException.class);
     }
 
     /**
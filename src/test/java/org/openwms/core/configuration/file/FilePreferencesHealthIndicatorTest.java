@@ -0,0 +1,88 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * A FilePreferencesHealthIndicatorTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class FilePreferencesHealthIndicatorTest {
+
+    private PreferencesLoader loader = new PreferencesLoader();
+    private FilePreferencesHealthIndicator testee = new FilePreferencesHealthIndicator();
+    private Runnable task;
+
+    private Health health() {
+        ReflectionTestUtils.setField(testee, "loader", loader);
+        return testee.health();
+    }
+
+    private void asyncLoading() {
+        ReflectionTestUtils.setField(loader, "executor", (TaskExecutor) r -> task = r);
+        ReflectionTestUtils.setField(loader, "asyncLoading", true);
+    }
+
+    /**
+     * While loading the service is out of service, afterwards up with the number of loaded preferences.
+     */
+    @Test
+    public final void testUpAfterLoading() {
+        asyncLoading();
+        loader.load(() -> PreferenceIndex.of(Arrays.asList(new ApplicationPreference("ui.theme"), new ApplicationPreference("ui.locale"))));
+        assertThat(health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        task.run();
+
+        Health health = health();
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("state", "loaded").containsEntry("preferences", 2);
+    }
+
+    /**
+     * A failed loading is reported as down.
+     */
+    @Test
+    public final void testDownWhenLoadingFailed() {
+        asyncLoading();
+        loader.load(() -> {
+            throw new IllegalStateException("File not readable");
+        });
+        task.run();
+
+        Health health = health();
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails()).containsEntry("state", "failed").containsKey("error");
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.openwms.core.configuration.PropertyScope;
+import org.openwms.core.exception.NoUniqueResultException;
+
+/**
+ * A PreferenceIndexTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class PreferenceIndexTest {
+
+    private ApplicationPreference app = new ApplicationPreference("ui.grid.orders.width");
+    private ModulePreference mod = new ModulePreference("CORE", "ui.grid.orders.width");
+    private UserPreference user1 = new UserPreference("USER1", "ui.grid.orders.height");
+    private UserPreference user2 = new UserPreference("USER1", "printer.labels.default");
+    private UserPreference user3 = new UserPreference("USER2", "ui.grid.locations.width");
+
+    private PreferenceIndex index() {
+        return PreferenceIndex.of(Arrays.asList(app, mod, user1, user2, user3));
+    }
+
+    /**
+     * Query by scope returns the preferences of that scope only.
+     */
+    @Test
+    public final void testFindByScope() {
+        PreferenceIndex index = index();
+        assertThat(index.size()).isEqualTo(5);
+        assertThat(index.findByScope(PropertyScope.USER)).containsExactly(user1, user2, user3);
+        assertThat(index.findByScope(PropertyScope.ROLE)).isEmpty();
+    }
+
+    /**
+     * Duplicated keys are not allowed and the index is immutable.
+     */
+    @Test
+    public final void testUniquenessAndImmutability() {
+        assertThatThrownBy(() -> PreferenceIndex.of(Arrays.asList(user1, new UserPreference("USER1", "ui.grid.orders.height"))))
+                .isInstanceOf(NoUniqueResultException.class);
+        assertThatThrownBy(() -> index().findAll().add(app)).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(PreferenceIndex.of(Collections.emptyList()).findByScope(PropertyScope.APPLICATION)).isEmpty();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.ameba.exception.IntegrationLayerException;
+import org.junit.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * A PreferencesLoaderTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class PreferencesLoaderTest {
+
+    private PreferencesLoader testee = new PreferencesLoader();
+    private Runnable task;
+
+    private void asyncLoading(long loadingTimeout) {
+        ReflectionTestUtils.setField(testee, "executor", (TaskExecutor) r -> task = r);
+        ReflectionTestUtils.setField(testee, "asyncLoading", true);
+        ReflectionTestUtils.setField(testee, "loadingTimeout", loadingTimeout);
+    }
+
+    /**
+     * Readers wait until the preferences have been loaded in background.
+     *
+     * @throws Exception Any error
+     */
+    @Test
+    public final void testReadersWaitForLoading() throws Exception {
+        asyncLoading(5000);
+        PreferenceIndex index = PreferenceIndex.of(Collections.singletonList(new ApplicationPreference("ui.theme")));
+        testee.load(() -> index);
+        assertThat(testee.isDone()).isFalse();
+        assertThat(testee.getNow()).isNull();
+
+        CompletableFuture<PreferenceIndex> reader = CompletableFuture.supplyAsync(testee::await);
+        Thread.sleep(100);
+        assertThat(reader.isDone()).isFalse();
+
+        task.run();
+        assertThat(reader.get(5, TimeUnit.SECONDS)).isSameAs(index);
+        assertThat(testee.getNow()).isSameAs(index);
+        assertThat(testee.getFailure()).isNull();
+    }
+
+    /**
+     * Readers give up when the preferences are not loaded in time.
+     */
+    @Test
+    public final void testTimeout() {
+        asyncLoading(50);
+        testee.load(PreferenceIndex::empty);
+
+        assertThatThrownBy(testee::await).isInstanceOf(IntegrationLayerException.class).hasMessageContaining("50 ms");
+    }
+
+    /**
+     * A failure while loading in background is kept and rethrown to the readers.
+     */
+    @Test
+    public final void testFailure() {
+        asyncLoading(5000);
+        IllegalStateException failure = new IllegalStateException("File not readable");
+        testee.load(() -> {
+            throw failure;
+        });
+        task.run();
+
+        assertThat(testee.isDone()).isTrue();
+        assertThat(testee.getFailure()).isSameAs(failure);
+        assertThat(testee.getNow()).isNull();
+        assertThatThrownBy(testee::await).isInstanceOf(IntegrationLayerException.class).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Without background loading the preferences are loaded by the caller and failures are rethrown at once.
+     */
+    @Test
+    public final void testSynchronousLoading() {
+        ReflectionTestUtils.setField(testee, "loadingTimeout", 5000L);
+        testee.load(PreferenceIndex::empty);
+        assertThat(testee.await()).isSameAs(PreferenceIndex.empty());
+
+        assertThatThrownBy(() -> testee.load(() -> {
+            throw new IllegalStateException("File not readable");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(testee.getFailure()).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.configuration.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * A PreferencesTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class PreferencesTest {
+
+    private ApplicationPreference app = new ApplicationPreference("ui.theme");
+    private UserPreference user = new UserPreference("USER1", "ui.grid.orders.width");
+
+    /**
+     * All preferences can only be changed by replacing them, what partitions them again.
+     */
+    @Test
+    public final void testReplace() {
+        Preferences preferences = new Preferences(Arrays.asList(app, user));
+        assertThatThrownBy(() -> preferences.getAll().add(app)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> preferences.getApplicationOrRoleOrUserOrModule().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        preferences.setAll(Arrays.asList(user));
+
+        assertThat(preferences.getAll()).containsExactly(user);
+        assertThat(preferences.getUsers()).containsExactly(user);
+        assertThat(preferences.getApplications()).isEmpty();
+    }
+
+    /**
+     * An instance created by JAXB without any preferences is empty.
+     */
+    @Test
+    public final void testEmpty() {
+        Preferences preferences = new Preferences();
+        assertThat(preferences.getAll()).isEmpty();
+        assertThat(preferences.getUsers()).isEmpty();
+    }
+
+    /**
+     * Readers that run during replacements always see all preferences and the partitions of one generation.
+     */
+    @Test
+    public final void testConcurrentReadersDuringReplacement() throws Exception {
+        int readers = 4;
+        int generations = 500;
+        Preferences preferences = new Preferences(generation(0));
+        AtomicBoolean replacing = new AtomicBoolean(true);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(readers);
+        ExecutorService pool = Executors.newFixedThreadPool(readers);
+        for (int i = 0; i < readers; i++) {
+            pool.execute(() -> {
+                started.countDown();
+                try {
+                    while (replacing.get()) {
+                        List<AbstractPreference> all = preferences.getAll();
+                        assertThat(all).hasSize(2);
+                        assertThat(all.get(0).getKey()).isEqualTo(all.get(1).getOwner());
+                        List<UserPreference> users = preferences.getUsers();
+                        assertThat(users).hasSize(1);
+                        assertThat(users.get(0).getOwner()).startsWith("GEN");
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            });
+        }
+        started.await();
+        for (int i = 1; i <= generations; i++) {
+            preferences.setAll(generation(i));
+        }
+        replacing.set(false);
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(failures).isEmpty();
+        assertThat(preferences.getUsers().get(0).getOwner()).isEqualTo("GEN" + generations);
+    }
+
+    /**
+     * The key of the application preference is the owner of the user preference, so both belong to the same generation.
+     */
+    private static List<AbstractPreference> generation(int i) {
+        List<AbstractPreference> result = new ArrayList<>(2);
+        result.add(new ApplicationPreference("GEN" + i));
+        result.add(new UserPreference("GEN" + i, "ui.grid.orders.width"));
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.module;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * A ModuleDaoIT.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class ModuleDaoIT {
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private ModuleDao dao;
+
+    /**
+     * Each Module gets its own startupOrder and a new version, other Modules are not touched.
+     */
+    @Test
+    public final void testUpdateStartupOrders() {
+        Module core = persist("CORE", 0);
+        Module tms = persist("TMS", 1);
+        Module wms = persist("WMS", 2);
+        Map<Long, Integer> startupOrders = new HashMap<>();
+        startupOrders.put(tms.getPk(), 0);
+        startupOrders.put(core.getPk(), 1);
+
+        long tmsVersion = versionOf(tms);
+        long wmsVersion = versionOf(wms);
+
+        assertThat(dao.updateStartupOrders(startupOrders)).isEqualTo(2);
+        em.clear();
+
+        assertThat(versionOf(tms)).isEqualTo(tmsVersion + 1);
+        assertThat(versionOf(wms)).isEqualTo(wmsVersion);
+
+        assertThat(em.find(Module.class, tms.getPk()).getStartupOrder()).isEqualTo(0);
+        assertThat(em.find(Module.class, core.getPk()).getStartupOrder()).isEqualTo(1);
+        assertThat(em.find(Module.class, wms.getPk()).getStartupOrder()).isEqualTo(2);
+    }
+
+    /**
+     * Only existing identifiers are returned.
+     */
+    @Test
+    public final void testFindExistingPks() {
+        Module core = persist("CORE", 0);
+
+        assertThat(dao.findExistingPks(Arrays.asList(core.getPk(), -1L))).containsExactly(core.getPk());
+    }
+
+    private long versionOf(Module module) {
+        return em.getEntityManager().createQuery("select m.ol from Module m where m.pk = :pk", Long.class)
+                .setParameter("pk", module.getPk()).getSingleResult();
+    }
+
+    private Module persist(String moduleName, int startupOrder) {
+        Module module = new Module(moduleName, "http://localhost/" + moduleName);
+        module.setStartupOrder(startupOrder);
+        return em.persistAndFlush(module);
+    }
+}
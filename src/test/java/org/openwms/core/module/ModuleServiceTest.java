@@ -0,0 +1,155 @@
+/*
+ * openwms.org, the Open Warehouse Management System.
+ * Copyright (C) 2014 Heiko Scherrer
+ *
+ * This file is part of openwms.org.
+ *
+ * openwms.org is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as 
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * openwms.org is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this software. If not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.openwms.core.module;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.ameba.exception.NotFoundException;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.openwms.core.test.AbstractMockitoTests;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * A ModuleServiceTest.
+ *
+ * @author <a href="mailto:scherrer@openwms.org">Heiko Scherrer</a>
+ * @version 1.0
+ * @since 2.0
+ */
+public class ModuleServiceTest extends AbstractMockitoTests {
+
+    @Mock
+    private ModuleDao moduleDao;
+    @InjectMocks
+    private ModuleServiceImpl srv = new ModuleServiceImpl();
+
+    /**
+     * A new Module follows the highest startupOrder without loading all Modules.
+     */
+    @Test
+    public final void testSaveNewModule() {
+        Module module = new Module("CORE", "http://localhost/core");
+        when(moduleDao.findMaxStartupOrder()).thenReturn(7);
+        when(moduleDao.save(module)).thenReturn(module);
+
+        srv.save(module);
+
+        assertThat(module.getStartupOrder()).isEqualTo(8);
+        verify(moduleDao, never()).findAll();
+    }
+
+    /**
+     * The first Module keeps its startupOrder.
+     */
+    @Test
+    public final void testSaveFirstModule() {
+        Module module = new Module("CORE", "http://localhost/core");
+        module.setStartupOrder(3);
+        when(moduleDao.findMaxStartupOrder()).thenReturn(null);
+
+        srv.save(module);
+
+        assertThat(module.getStartupOrder()).isEqualTo(3);
+    }
+
+    /**
+     * The startupOrder of all Modules is set with one bulk update, without loading them.
+     */
+    @Test
+    public final void testSaveStartupOrder() {
+        Map<Long, Integer> startupOrders = new HashMap<>();
+        startupOrders.put(2L, 0);
+        startupOrders.put(1L, 1);
+        when(moduleDao.updateStartupOrders(startupOrders)).thenReturn(2);
+
+        srv.saveStartupOrder(Arrays.asList(persisted("TMS", 2L, 0), persisted("CORE", 1L, 1)));
+
+        verify(moduleDao).updateStartupOrders(startupOrders);
+        verify(moduleDao, never()).findAll(anyCollectionOf(Long.class));
+        verify(moduleDao, never()).findOne(anyLong());
+        verify(moduleDao, never()).save(any(Module.class));
+    }
+
+    /**
+     * Unknown ids are reported, the exception rolls back the update.
+     */
+    @Test
+    public final void testSaveStartupOrderOfUnknownModule() {
+        when(moduleDao.updateStartupOrders(anyMapOf(Long.class, Integer.class))).thenReturn(1);
+        when(moduleDao.findExistingPks(new LinkedHashSet<>(Arrays.asList(1L, 99L)))).thenReturn(Collections.singletonList(1L));
+
+        assertThatThrownBy(() -> srv.saveStartupOrder(Arrays.asList(persisted("CORE", 1L, 5), persisted("ERP", 99L, 6))))
+                .isInstanceOf(NotFoundException.class).hasMessageContaining("[99]");
+    }
+
+    /**
+     * The comparator orders by startupOrder and moduleName and returns 0 for equal Modules only.
+     */
+    @Test
+    public final void testModuleComparator() {
+        Module.ModuleComparator comparator = new Module.ModuleComparator();
+        Module core = module("CORE", 1);
+        Module tms = module("TMS", 1);
+        Module wms = module("WMS", 0);
+
+        assertThat(comparator.compare(core, core)).isZero();
+        assertThat(comparator.compare(core, module("CORE", 1))).isZero();
+        assertThat(Integer.signum(comparator.compare(core, tms))).isEqualTo(-Integer.signum(comparator.compare(tms, core)));
+        List<Module> modules = new ArrayList<>(Arrays.asList(tms, core, wms));
+        Collections.sort(modules, comparator);
+        // Equality of a BaseEntity is defined by its persistence identifiers, which transient Modules do not have, so equals can not tell
+        // them apart and the order is verified by identity
+        assertThat(modules.get(0)).isSameAs(wms);
+        assertThat(modules.get(1)).isSameAs(core);
+        assertThat(modules.get(2)).isSameAs(tms);
+    }
+
+    private static Module persisted(String moduleName, Long pk, int startupOrder) {
+        Module module = module(moduleName, startupOrder);
+        ReflectionTestUtils.setField(module, "pk", pk);
+        return module;
+    }
+
+    private static Module module(String moduleName, int startupOrder) {
+        Module module = new Module(moduleName, "http://localhost/" + moduleName);
+        module.setStartupOrder(startupOrder);
+        return module;
+    }
+}